@@ -1,5 +1,6 @@
 package cn.treedeep.link.config;
 
+import cn.treedeep.link.event.EventOverflowPolicy;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +18,87 @@ public class LinkConfig {
      */
     private String uploadPath = ".link/uploads";
 
+    /**
+     * 流式上传：每一帧到达即写入文件，不在内存中缓存整个文件，结束时只需fsync和重命名
+     */
+    private boolean uploadStreaming = false;
+
+    /**
+     * 上传数据在内存中的缓冲上限（字节），小于等于0表示不限制；超出后帧改为写入磁盘，并暂停读取该连接
+     */
+    private long uploadMaxBufferedBytes = 256L * 1024 * 1024;
+
+    /**
+     * 流式上传的乱序窗口（帧数）：乱序帧最多超前待写入帧这么多帧，超出视为异常上传，放弃本次上传并断开连接；
+     * 乱序帧只能暂存在内存中，窗口限制了单个上传的内存占用
+     */
+    private int uploadReorderWindow = 1024;
+
+    /**
+     * 缓冲预算耗尽时单次暂停读取的最长时间（毫秒）
+     */
+    private long uploadBackpressurePauseMillis = 200;
+
+    /**
+     * 文件帧批量确认：每收到N帧发送一次累计确认，一次读取结束时也会确认剩余的帧；1表示逐帧确认
+     */
+    private int uploadAckBatch = 1;
+
+    /**
+     * 上传结束时合并、落盘、计算摘要的I/O线程数，不占用Netty的EventLoop；小于等于0表示每次保存使用一个虚拟线程
+     */
+    private int uploadIoThreads = 0;
+
+    /**
+     * 帧对象回收：解码出的心跳、文件帧从对象池创建，处理结束后归还，减少高频上报时的对象分配
+     */
+    private boolean frameRecycling = false;
+
+    /**
+     * 合并刷新：一次读取中产生的响应只在读取结束时刷新一次，减少write系统调用
+     */
+    private boolean flushConsolidation = true;
+
+    /**
+     * 合并刷新时，累计多少次flush后强制刷新一次，避免一次读取中积压过多响应
+     */
+    private int flushConsolidationLimit = 256;
+
+    /**
+     * 事件异步分发：订阅者（SSE推送等）在独立的分发线程上执行，同一设备的事件保持发布顺序
+     */
+    private boolean eventAsync = false;
+
+    /**
+     * 事件分发线程数，小于等于0表示取CPU核数
+     */
+    private int eventDispatchThreads = 0;
+
+    /**
+     * 每个事件分发线程的队列容量
+     */
+    private int eventQueueCapacity = 8192;
+
+    /**
+     * 事件队列满时的处理策略：DROP_OLDEST、BLOCK、SAMPLE_HEARTBEATS
+     */
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DROP_OLDEST;
+
+    /**
+     * 每个SSE客户端待发送事件的队列容量
+     */
+    private int sseQueueCapacity = 1024;
+
+    /**
+     * SSE客户端队列满时断开连接（客户端可重连）；false表示丢弃该客户端最早的事件
+     */
+    private boolean sseDropSlowClients = true;
+
+    /**
+     * SSE心跳合并周期（毫秒）：每周期推送一次各设备最新的心跳（HEARTBEAT_BATCH）；小于等于0表示逐条推送
+     */
+    private long sseHeartbeatCoalesceMillis = 1000;
+
     /**
      * 服务器地址
      */
@@ -27,6 +109,88 @@ public class LinkConfig {
      */
     private int serverPort = 9900;
 
+    /**
+     * 优先使用原生传输（Linux epoll、macOS kqueue），不可用或为false时使用NIO
+     */
+    private boolean serverNativeTransport = true;
+
+    /**
+     * 接收连接的线程数
+     */
+    private int serverBossThreads = 1;
+
+    /**
+     * 处理连接读写的线程数，小于等于0表示使用Netty默认值（CPU核数 × 2）
+     */
+    private int serverWorkerThreads = 0;
+
+    /**
+     * 等待accept的连接队列长度（SO_BACKLOG），实际还受系统 net.core.somaxconn 限制；
+     * 服务重启后大量设备同时重连时，过小会丢弃SYN导致设备重试
+     */
+    private int serverBacklog = 4096;
+
+    /**
+     * 关闭Nagle算法（TCP_NODELAY），小的响应帧立即发送
+     */
+    private boolean serverTcpNoDelay = true;
+
+    /**
+     * 连接接收缓冲区大小（SO_RCVBUF，字节），小于等于0表示使用系统默认值
+     */
+    private int serverReceiveBufferSize = 1024 * 1024;
+
+    /**
+     * 连接发送缓冲区大小（SO_SNDBUF，字节），小于等于0表示使用系统默认值
+     */
+    private int serverSendBufferSize = 0;
+
+    /**
+     * 使用池化的ByteBuf分配器
+     */
+    private boolean serverPooledAllocator = true;
+
+    /**
+     * 优先分配直接内存（堆外）
+     */
+    private boolean serverDirectBuffer = true;
+
+    /**
+     * epoll使用边缘触发模式（Netty默认）；false为水平触发
+     */
+    private boolean serverEpollEdgeTriggered = true;
+
+    /**
+     * epoll下开启TCP_QUICKACK，收到数据立即回ACK，不等待延迟确认
+     */
+    private boolean serverTcpQuickAck = false;
+
+    /**
+     * epoll下开启SO_REUSEPORT
+     */
+    private boolean serverReusePort = false;
+
+    /**
+     * 监听同一端口的服务端通道数：大于1时（仅epoll）以SO_REUSEPORT绑定多个通道，各有独立的accept线程，
+     * 由内核把新连接分散到各通道
+     */
+    private int serverAcceptors = 1;
+
+    /**
+     * 线路抓包采样率：每N帧随机记录一帧原始数据，小于等于0表示不采样（按设备开启的抓包不受影响）
+     */
+    private int wireTraceSampleRate = 0;
+
+    /**
+     * 线路抓包环形缓冲区容量（帧数）
+     */
+    private int wireTraceCapacity = 1024;
+
+    /**
+     * 线路抓包每帧最多保存的字节数
+     */
+    private int wireTraceMaxFrameBytes = 256;
+
     /**
      * 服务端心跳检测
      */
@@ -42,11 +206,6 @@ public class LinkConfig {
      */
     private boolean cleanupSessions = false;
 
-    /**
-     * 清理过期会话间隔（分钟）
-     */
-    private int cleanupExpiredSessions = 5;
-
     /**
      * 会话超时时间（分钟）
      */
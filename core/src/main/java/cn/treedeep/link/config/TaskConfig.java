@@ -2,11 +2,14 @@ package cn.treedeep.link.config;
 
 import cn.treedeep.link.event.DeviceEventPublisher;
 import cn.treedeep.link.netty.ChannelManager;
+import cn.treedeep.link.netty.FileUploadManager;
 import cn.treedeep.link.netty.ServerHeartbeat;
 import cn.treedeep.link.netty.SessionManager;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import cn.treedeep.link.task.HeartbeatTask;
 import cn.treedeep.link.task.SessionCleanupTask;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,26 +21,28 @@ import java.time.Duration;
 @Configuration("td_link_TaskConfig")
 public class TaskConfig {
 
-    @Bean
+    /**
+     * 会话过期检查：时间轮按会话逐个处理，不再定期全量扫描
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
     @ConditionalOnProperty(name = "link.cleanupSessions", havingValue = "true")
-    public ScheduledTaskRegistrar sessionCleanupTask(LinkConfig config,
-                                                     SessionManager sessionManager,
-                                                     ChannelManager channelManager,
-                                                     DeviceEventPublisher eventPublisher) {
-        ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
-        registrar.addFixedRateTask(
-                () -> new SessionCleanupTask(config, sessionManager, channelManager, eventPublisher)
-                        .cleanupExpiredSessions(), Duration.ofMinutes(config.getCleanupExpiredSessions())
-        );
-        return registrar;
+    public SessionCleanupTask sessionCleanupTask(LinkConfig config,
+                                                 SessionManager sessionManager,
+                                                 ChannelManager channelManager,
+                                                 DeviceEventPublisher eventPublisher,
+                                                 FileUploadManager fileUploadManager) {
+        return new SessionCleanupTask(config, sessionManager, channelManager, eventPublisher, fileUploadManager);
     }
 
     @Bean
     @ConditionalOnProperty(name = "link.serverHeartbeat", havingValue = "true")
-    public ScheduledTaskRegistrar heartbeatTask(LinkConfig config, ChannelManager channelManager, ServerHeartbeat serverHeartbeat) {
+    public ScheduledTaskRegistrar heartbeatTask(LinkConfig config, ChannelManager channelManager, ServerHeartbeat serverHeartbeat,
+                                                ObjectProvider<WireTrace> wireTrace) {
         ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+        // 任务持有心跳帧的编码模板，只创建一次；模板编码的心跳不经过编码器，由任务记录抓包
+        HeartbeatTask heartbeatTask = new HeartbeatTask(channelManager, wireTrace.getIfAvailable());
         registrar.addFixedRateTask(
-                () -> new HeartbeatTask(channelManager).scheduleHeartbeatInterval(serverHeartbeat),
+                () -> heartbeatTask.scheduleHeartbeatInterval(serverHeartbeat),
                 Duration.ofSeconds(config.getHeartbeatInterval())
         );
         return registrar;
@@ -0,0 +1,73 @@
+package cn.treedeep.link.event;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>类型化事件的基类</p>
+ * <p>
+ * 发布时只记录基本类型字段和毫秒时间戳，不创建Map和 {@link LocalDateTime}；
+ * {@link #getTimestamp()}、{@link #getData()} 在订阅者（序列化、推送）真正读取时才生成，
+ * 异步分发时这部分开销发生在分发线程上，而不是Netty的EventLoop上。
+ *
+ * @author 周广明
+ * @since 2025/4/16 09:30
+ */
+public abstract class AbstractDeviceEvent implements DeviceEvent {
+
+    private final int deviceId;
+    private final int taskId;
+    private final long epochMillis;
+
+    protected AbstractDeviceEvent(int deviceId, int taskId, long epochMillis) {
+        this.deviceId = deviceId;
+        this.taskId = taskId;
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public int getTaskId() {
+        return taskId;
+    }
+
+    @Override
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    @Override
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 事件数据，与 {@link DefaultDeviceEvent} 的Map格式一致，供按Map读取数据的订阅者使用
+     */
+    @Override
+    public Map<String, Object> getData() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        fillData(data);
+        return data;
+    }
+
+    /**
+     * 填充事件数据
+     */
+    protected abstract void fillData(Map<String, Object> data);
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(deviceId=" + deviceId + ", taskId=" + taskId
+                + ", epochMillis=" + epochMillis + ", data=" + getData() + ")";
+    }
+}
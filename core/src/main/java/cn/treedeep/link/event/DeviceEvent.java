@@ -1,6 +1,7 @@
 package cn.treedeep.link.event;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Copyright © 深圳市树深计算机系统有限公司 版权所有
@@ -21,4 +22,11 @@ public interface DeviceEvent {
     Object getData();
 
     LocalDateTime getTimestamp();
+
+    /**
+     * 事件时间（毫秒时间戳），类型化事件直接返回发布时记录的值
+     */
+    default long getEpochMillis() {
+        return getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
\ No newline at end of file
@@ -6,24 +6,82 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
  * Copyright © 深圳市树深计算机系统有限公司 版权所有
  *
  * <p>事件发布服务</p>
+ * <p>
+ * 两种分发模式：
+ * <ul>
+ *     <li>同步（默认）：在发布线程上依次调用订阅者</li>
+ *     <li>异步：按设备ID分到固定数量的分发线程，每个线程一个有界环形队列，
+ *     同一设备的事件总在同一线程上按发布顺序处理；订阅者（序列化、SSE推送等）再慢也不会占用Netty的EventLoop，
+ *     队列满时按 {@link EventOverflowPolicy} 处理</li>
+ * </ul>
  *
  * @author 周广明
  * @since 2025/3/30 09:00
  */
 @Slf4j
 public class DeviceEventPublisher {
+
+    /**
+     * 心跳事件类型，{@link EventOverflowPolicy#SAMPLE_HEARTBEATS} 据此判断事件是否可丢弃
+     */
+    public static final String HEARTBEAT = "HEARTBEAT";
+
     // 使用CopyOnWriteArrayList保证线程安全，适合读多写少的场景
     private final List<Consumer<DeviceEvent>> subscribers = new CopyOnWriteArrayList<>();
 
     // 使用ConcurrentMap存储特定类型的事件处理器
     private final ConcurrentMap<Class<?>, List<Consumer<?>>> typedSubscribers = new ConcurrentHashMap<>();
 
+    // 异步分发线程，同步模式下为null
+    private final Stripe[] stripes;
+    private final EventOverflowPolicy overflowPolicy;
+
+    // 统计
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder dispatchedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder dispatchLatencyNanos = new LongAdder();
+    private final AtomicLong maxDispatchLatencyNanos = new AtomicLong();
+
+    /**
+     * 同步分发
+     */
+    public DeviceEventPublisher() {
+        this.stripes = null;
+        this.overflowPolicy = null;
+    }
+
+    /**
+     * 异步分发
+     *
+     * @param threads        分发线程数，小于等于0时取CPU核数
+     * @param queueCapacity  每个分发线程的队列容量
+     * @param overflowPolicy 队列满时的处理策略
+     */
+    public DeviceEventPublisher(int threads, int queueCapacity, EventOverflowPolicy overflowPolicy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.overflowPolicy = overflowPolicy == null ? EventOverflowPolicy.DROP_OLDEST : overflowPolicy;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(i, queueCapacity);
+        }
+        log.info("事件异步分发已启用，线程数：{}，每线程队列容量：{}，溢出策略：{}", count, queueCapacity, this.overflowPolicy);
+    }
+
     /**
      * 订阅所有事件
      */
@@ -61,28 +119,309 @@ public class DeviceEventPublisher {
      * 发布事件
      */
     public void publishEvent(DeviceEvent event) {
+        publishedCount.increment();
+        if (stripes == null) {
+            dispatch(event);
+            dispatchedCount.increment();
+            return;
+        }
+
+        Stripe stripe = stripes[Math.floorMod(event.getDeviceId(), stripes.length)];
+        if (Thread.currentThread() == stripe.worker) {
+            // 订阅者在分发线程上再次发布同一分区的事件：直接处理，避免等待自己的队列
+            dispatch(event);
+            dispatchedCount.increment();
+            return;
+        }
+        stripe.offer(event);
+    }
+
+    /**
+     * 是否异步分发
+     */
+    public boolean isAsync() {
+        return stripes != null;
+    }
+
+    /**
+     * 当前排队中的事件数（所有分发线程之和）
+     */
+    public int getQueueDepth() {
+        if (stripes == null) {
+            return 0;
+        }
+        int depth = 0;
+        for (Stripe stripe : stripes) {
+            depth += stripe.size();
+        }
+        return depth;
+    }
+
+    /**
+     * 分发统计
+     */
+    public DispatchStats getStats() {
+        long dispatched = dispatchedCount.sum();
+        long latency = dispatchLatencyNanos.sum();
+        return new DispatchStats(
+                isAsync(),
+                stripes == null ? 0 : stripes.length,
+                stripes == null ? 0 : stripes[0].capacity,
+                overflowPolicy,
+                getQueueDepth(),
+                publishedCount.sum(),
+                dispatched,
+                droppedCount.sum(),
+                dispatched == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latency / dispatched),
+                TimeUnit.NANOSECONDS.toMicros(maxDispatchLatencyNanos.get())
+        );
+    }
+
+    /**
+     * 停止分发线程，已排队的事件会先处理完
+     */
+    public void shutdown() {
+        if (stripes == null) {
+            return;
+        }
+        for (Stripe stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (Stripe stripe : stripes) {
+            try {
+                stripe.worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(DeviceEvent event) {
         // 处理通用订阅者
         subscribers.forEach(subscriber -> {
             try {
                 subscriber.accept(event);
             } catch (Exception e) {
                 // 处理异常但不中断其他订阅者
-                System.err.println("事件处理异常: " + e.getMessage());
+                log.error("事件处理异常: {}", e.getMessage(), e);
             }
         });
 
-        // 处理特定类型订阅者
-        List<Consumer<?>> handlers = typedSubscribers.get(event.getClass());
-        if (handlers != null) {
+        // 处理特定类型订阅者：按事件类及其父类路由，订阅基类可收到所有子类事件
+        if (typedSubscribers.isEmpty()) {
+            return;
+        }
+        for (Class<?> type = event.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            List<Consumer<?>> handlers = typedSubscribers.get(type);
+            if (handlers == null) {
+                continue;
+            }
             handlers.forEach(handler -> {
                 try {
                     @SuppressWarnings("unchecked")
                     Consumer<DeviceEvent> castHandler = (Consumer<DeviceEvent>) handler;
                     castHandler.accept(event);
                 } catch (Exception e) {
-                    System.err.println("特定类型事件处理异常: " + e.getMessage());
+                    log.error("特定类型事件处理异常: {}", e.getMessage(), e);
                 }
             });
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isHeartbeat(DeviceEvent event) {
+        return event instanceof HeartbeatEvent || HEARTBEAT.equals(event.getType());
+    }
+
+    /**
+     * 分发统计
+     *
+     * @param async                   是否异步分发
+     * @param threads                 分发线程数
+     * @param queueCapacity           每个分发线程的队列容量
+     * @param overflowPolicy          溢出策略
+     * @param queueDepth              当前排队中的事件数
+     * @param published               已发布的事件数
+     * @param dispatched              已分发的事件数
+     * @param dropped                 因队列满丢弃的事件数
+     * @param avgDispatchLatencyMicros 从发布到开始分发的平均延迟（微秒）
+     * @param maxDispatchLatencyMicros 从发布到开始分发的最大延迟（微秒）
+     */
+    public record DispatchStats(boolean async,
+                                int threads,
+                                int queueCapacity,
+                                EventOverflowPolicy overflowPolicy,
+                                int queueDepth,
+                                long published,
+                                long dispatched,
+                                long dropped,
+                                long avgDispatchLatencyMicros,
+                                long maxDispatchLatencyMicros) {
+    }
+
+    /**
+     * 一个分发线程及其有界环形队列，事件与入队时间存放在平行数组中，入队不分配对象
+     */
+    private final class Stripe {
+        private final int capacity;
+        private final DeviceEvent[] events;
+        private final long[] enqueuedAt;
+        private int head;
+        private int count;
+        private boolean running = true;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Thread worker;
+
+        Stripe(int index, int capacity) {
+            this.capacity = capacity;
+            this.events = new DeviceEvent[capacity];
+            this.enqueuedAt = new long[capacity];
+            this.worker = new Thread(this::run, "device-event-" + index);
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void offer(DeviceEvent event) {
+            lock.lock();
+            try {
+                if (!running) {
+                    droppedCount.increment();
+                    return;
+                }
+                while (count == capacity) {
+                    if (!makeRoom(event)) {
+                        droppedCount.increment();
+                        return;
+                    }
+                    if (!running) {
+                        droppedCount.increment();
+                        return;
+                    }
+                }
+                int tail = (head + count) % capacity;
+                events[tail] = event;
+                enqueuedAt[tail] = System.nanoTime();
+                count++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // 队列已满：按策略腾出位置（返回true后重新检查），或放弃新事件（返回false）
+        private boolean makeRoom(DeviceEvent event) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST -> {
+                    removeAt(0);
+                    droppedCount.increment();
+                    return true;
+                }
+                case SAMPLE_HEARTBEATS -> {
+                    if (isHeartbeat(event)) {
+                        return false;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (isHeartbeat(events[(head + i) % capacity])) {
+                            removeAt(i);
+                            droppedCount.increment();
+                            return true;
+                        }
+                    }
+                    awaitNotFull();
+                    return true;
+                }
+                default -> {
+                    awaitNotFull();
+                    return true;
+                }
+            }
+        }
+
+        private void awaitNotFull() {
+            try {
+                notFull.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // 被中断时退化为丢弃最早的事件，保证发布线程能返回；
+                // 重新拿到锁时工作线程可能已经取走了事件，队列仍满才丢弃，否则交给调用方重新检查
+                if (count == capacity) {
+                    removeAt(0);
+                    droppedCount.increment();
+                }
+            }
+        }
+
+        // 移除第i个（相对队头）事件，后面的事件前移一位
+        private void removeAt(int i) {
+            if (i == 0) {
+                events[head] = null;
+                head = (head + 1) % capacity;
+                count--;
+                return;
+            }
+            for (int k = i; k < count - 1; k++) {
+                int to = (head + k) % capacity;
+                int from = (head + k + 1) % capacity;
+                events[to] = events[from];
+                enqueuedAt[to] = enqueuedAt[from];
+            }
+            events[(head + count - 1) % capacity] = null;
+            count--;
+        }
+
+        void shutdown() {
+            lock.lock();
+            try {
+                running = false;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                DeviceEvent event;
+                long enqueued;
+                lock.lock();
+                try {
+                    while (count == 0) {
+                        if (!running) {
+                            return;
+                        }
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    event = events[head];
+                    enqueued = enqueuedAt[head];
+                    events[head] = null;
+                    head = (head + 1) % capacity;
+                    count--;
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                long latency = System.nanoTime() - enqueued;
+                dispatchLatencyNanos.add(latency);
+                if (latency > maxDispatchLatencyNanos.get()) {
+                    maxDispatchLatencyNanos.accumulateAndGet(latency, Math::max);
+                }
+                dispatch(event);
+                dispatchedCount.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.treedeep.link.event;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>异步事件队列满时的处理策略</p>
+ *
+ * @author 周广明
+ * @since 2025/4/15 10:20
+ */
+public enum EventOverflowPolicy {
+
+    /**
+     * 丢弃队列中最早的事件，放入新事件，发布线程永不阻塞
+     */
+    DROP_OLDEST,
+
+    /**
+     * 阻塞发布线程直到队列有空位，事件不丢失；发布线程通常是Netty的EventLoop，慎用
+     */
+    BLOCK,
+
+    /**
+     * 心跳事件可丢弃：队列满时新到的心跳直接丢弃，其它事件优先挤掉队列中最早的心跳，
+     * 队列中没有心跳时阻塞等待；设备的下一次心跳会带来新的状态
+     */
+    SAMPLE_HEARTBEATS
+}
@@ -0,0 +1,73 @@
+package cn.treedeep.link.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>心跳快照事件：一个周期内有心跳的设备各自最新的一次心跳</p>
+ * <p>
+ * 不属于单个设备，设备ID和任务ID为0。
+ *
+ * @author 周广明
+ * @since 2025/4/17 10:40
+ */
+public final class HeartbeatBatchEvent extends AbstractDeviceEvent {
+
+    public static final String TYPE = "HEARTBEAT_BATCH";
+
+    private final List<HeartbeatEvent> heartbeats;
+
+    public HeartbeatBatchEvent(List<HeartbeatEvent> heartbeats, long epochMillis) {
+        super(0, 0, epochMillis);
+        this.heartbeats = List.copyOf(heartbeats);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    /**
+     * 各设备最新的心跳
+     */
+    public List<HeartbeatEvent> heartbeats() {
+        return heartbeats;
+    }
+
+    /**
+     * 只保留指定设备的心跳
+     *
+     * @param deviceIds 有序的设备ID数组
+     * @return 过滤后的快照，没有匹配的设备时返回null
+     */
+    public HeartbeatBatchEvent filter(int[] deviceIds) {
+        List<HeartbeatEvent> matched = new ArrayList<>();
+        for (HeartbeatEvent heartbeat : heartbeats) {
+            if (Arrays.binarySearch(deviceIds, heartbeat.getDeviceId()) >= 0) {
+                matched.add(heartbeat);
+            }
+        }
+        return matched.isEmpty() ? null : new HeartbeatBatchEvent(matched, getEpochMillis());
+    }
+
+    @Override
+    protected void fillData(Map<String, Object> data) {
+        List<Map<String, Object>> devices = new ArrayList<>(heartbeats.size());
+        for (HeartbeatEvent heartbeat : heartbeats) {
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("deviceId", heartbeat.getDeviceId());
+            device.put("taskId", heartbeat.getTaskId());
+            device.put("timestamp", heartbeat.getEpochMillis());
+            device.put("battery", heartbeat.getBattery());
+            device.put("status", heartbeat.getStatus());
+            devices.add(device);
+        }
+        data.put("count", heartbeats.size());
+        data.put("devices", devices);
+    }
+}
@@ -0,0 +1,42 @@
+package cn.treedeep.link.event;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>心跳事件</p>
+ *
+ * @author 周广明
+ * @since 2025/4/16 09:30
+ */
+@Getter
+public final class HeartbeatEvent extends AbstractDeviceEvent {
+
+    public static final String TYPE = DeviceEventPublisher.HEARTBEAT;
+
+    // 电量
+    private final byte battery;
+    // 状态码
+    private final byte status;
+
+    public HeartbeatEvent(int deviceId, int taskId, byte battery, byte status, long epochMillis) {
+        super(deviceId, taskId, epochMillis);
+        this.battery = battery;
+        this.status = status;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    protected void fillData(Map<String, Object> data) {
+        data.put("timestamp", getEpochMillis());
+        data.put("battery", battery);
+        data.put("status", status);
+    }
+}
@@ -0,0 +1,41 @@
+package cn.treedeep.link.event;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>关键帧标记事件</p>
+ *
+ * @author 周广明
+ * @since 2025/4/16 09:30
+ */
+@Getter
+public final class KeyframeEvent extends AbstractDeviceEvent {
+
+    public static final String TYPE = "KEYFRAME_MARK";
+
+    // 帧序号
+    private final int frameSeq;
+    // 设备上报的关键帧时间戳
+    private final long frameTimestamp;
+
+    public KeyframeEvent(int deviceId, int taskId, int frameSeq, long frameTimestamp, long epochMillis) {
+        super(deviceId, taskId, epochMillis);
+        this.frameSeq = frameSeq;
+        this.frameTimestamp = frameTimestamp;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    protected void fillData(Map<String, Object> data) {
+        data.put("frameSeq", frameSeq);
+        data.put("timestamp", frameTimestamp);
+    }
+}
@@ -0,0 +1,46 @@
+package cn.treedeep.link.event;
+
+import cn.treedeep.link.util.HexUtil;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>文件上传完成事件</p>
+ *
+ * @author 周广明
+ * @since 2025/4/16 09:30
+ */
+@Getter
+public final class UploadCompleteEvent extends AbstractDeviceEvent {
+
+    public static final String TYPE = "FILE_UPLOAD_COMPLETE";
+
+    // 保存的帧数
+    private final int totalFrames;
+    // 保存的文件名
+    private final String fileName;
+    // 文件MD5，转十六进制字符串推迟到读取数据时
+    private final byte[] fileHash;
+
+    public UploadCompleteEvent(int deviceId, int taskId, int totalFrames, String fileName, byte[] fileHash, long epochMillis) {
+        super(deviceId, taskId, epochMillis);
+        this.totalFrames = totalFrames;
+        this.fileName = fileName;
+        this.fileHash = fileHash;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    protected void fillData(Map<String, Object> data) {
+        data.put("totalFrames", totalFrames);
+        data.put("fileName", fileName);
+        data.put("MD5", HexUtil.bytesToHex(fileHash));
+    }
+}
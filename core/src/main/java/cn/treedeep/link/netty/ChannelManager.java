@@ -1,17 +1,35 @@
 package cn.treedeep.link.netty;
 
+import cn.treedeep.link.util.ConcurrentIntObjectMap;
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
 import lombok.Getter;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>设备连接管理</p>
+ * <p>
+ * 设备ID → 连接保存在以int为键的 {@link #deviceChannels} 中，连接 → 设备ID 保存在连接自身的属性 {@link #DEVICE_ID} 上，
+ * 两个方向的查找和删除都是常数时间，断线风暴时不会退化成逐个扫描。
+ * <p>
+ * 同一设备重连时新连接会替换旧连接，旧连接随后断开时只会删除仍然指向它自己的映射，不会误删新连接。
+ *
+ * @author 周广明
+ * @since 2025/3/30 08:20
+ */
 @Getter
 public class ChannelManager {
 
-    private final ConcurrentMap<Integer, Channel> deviceChannels = new ConcurrentHashMap<>();
+    /**
+     * 连接所属的设备ID
+     */
+    public static final AttributeKey<Integer> DEVICE_ID = AttributeKey.valueOf("link.deviceId");
+
+    private final ConcurrentIntObjectMap<Channel> deviceChannels = new ConcurrentIntObjectMap<>();
 
     public void addChannel(int deviceId, Channel channel) {
+        channel.attr(DEVICE_ID).set(deviceId);
         deviceChannels.put(deviceId, channel);
     }
 
@@ -23,25 +41,30 @@ public class ChannelManager {
         return deviceChannels.remove(deviceId);
     }
 
+    /**
+     * 删除连接
+     *
+     * @param channel 连接
+     * @return 连接所属的设备ID；连接未注册，或该设备已被其他连接替换时返回-1
+     */
     public Integer removeChannel(Channel channel) {
-        for (Integer deviceId : deviceChannels.keySet()) {
-            if (deviceChannels.get(deviceId) == channel) {
-                deviceChannels.remove(deviceId);
-                return deviceId;
-            }
+        Integer deviceId = channel.attr(DEVICE_ID).get();
+        if (deviceId != null && deviceChannels.remove(deviceId, channel)) {
+            return deviceId;
         }
 
         return -1;
     }
 
+    /**
+     * 获取连接所属的设备ID
+     *
+     * @param channel 连接
+     * @return 设备ID，连接未注册时返回-1
+     */
     public Integer getDeviceId(Channel channel) {
-        for (Integer deviceId : deviceChannels.keySet()) {
-            if (deviceChannels.get(deviceId) == channel) {
-                return deviceId;
-            }
-        }
-
-        return -1;
+        Integer deviceId = channel.attr(DEVICE_ID).get();
+        return deviceId != null ? deviceId : -1;
     }
 
-}
\ No newline at end of file
+}
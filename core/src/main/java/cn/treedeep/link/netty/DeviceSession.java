@@ -1,40 +1,118 @@
 package cn.treedeep.link.netty;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 设备会话
+ * <p>
+ * 时间统一以 {@link System#nanoTime()} 单调时钟记录：心跳路径只写一个long，不分配对象，
+ * 过期判断也不受系统时间调整（NTP校时等）影响。
+ * 需要展示时，以创建时刻的墙上时间为基准换算成 {@link LocalDateTime}。
+ */
 @Data
 public class DeviceSession {
 
+    private static final VarHandle LAST_ACTIVE_NANOS;
+
+    static {
+        try {
+            LAST_ACTIVE_NANOS = MethodHandles.lookup().findVarHandle(DeviceSession.class, "lastActiveNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public DeviceSession(int deviceId) {
         this.deviceId = deviceId;
-        this.createTime = LocalDateTime.now();
+        this.createEpochMillis = System.currentTimeMillis();
+        this.createNanos = System.nanoTime();
+        this.lastActiveNanos = createNanos;
         this.status = SessionStatus.INACTIVE;
     }
 
     private int deviceId;
     private short sessionId;
     private int taskId;
-    private LocalDateTime createTime;
-    private LocalDateTime lastActiveTime;
     private int frameSequence;
     private SessionStatus status;
 
+    // 创建时刻：墙上时间只用于换算展示，单调时间用于计算间隔
+    @Setter(AccessLevel.NONE)
+    private final long createEpochMillis;
+    @Setter(AccessLevel.NONE)
+    private final long createNanos;
+
+    // 最后活动时间（单调时钟），通过 LAST_ACTIVE_NANOS 以release语义写入
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile long lastActiveNanos;
+
+    /**
+     * 记录一次活动（心跳等），无对象分配
+     */
+    public void touch() {
+        LAST_ACTIVE_NANOS.setRelease(this, System.nanoTime());
+    }
+
+    /**
+     * 最后活动时间（{@link System#nanoTime()} 单调时钟）
+     */
+    public long getLastActiveNanos() {
+        return (long) LAST_ACTIVE_NANOS.getAcquire(this);
+    }
+
+    /**
+     * 距离最后活动经过的时间
+     *
+     * @param nowNanos 当前 {@link System#nanoTime()}
+     * @return 空闲纳秒数
+     */
+    public long idleNanos(long nowNanos) {
+        return nowNanos - getLastActiveNanos();
+    }
+
+    /**
+     * 创建时间，按需换算
+     */
+    public LocalDateTime getCreateTime() {
+        return toLocalDateTime(createNanos);
+    }
+
+    /**
+     * 最后活动时间，按需换算
+     */
+    public LocalDateTime getLastActiveTime() {
+        return toLocalDateTime(getLastActiveNanos());
+    }
+
     public boolean isExpired(int sessionTimeoutMinutes) {
         if (status == SessionStatus.CLOSED) {
             return true;
         }
-        
-        if (lastActiveTime == null) {
-            lastActiveTime = createTime;
-        }
-        
-        return lastActiveTime.plusMinutes(sessionTimeoutMinutes).isBefore(LocalDateTime.now());
+
+        return idleNanos(System.nanoTime()) > TimeUnit.MINUTES.toNanos(sessionTimeoutMinutes);
+    }
+
+    // 单调时间 → 墙上时间：以创建时刻为基准加上经过的时间
+    private LocalDateTime toLocalDateTime(long nanos) {
+        long epochMillis = createEpochMillis + TimeUnit.NANOSECONDS.toMillis(nanos - createNanos);
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
     }
 
 
     public enum SessionStatus {
         INACTIVE, ACTIVE, CLOSED
     }
-}
\ No newline at end of file
+}
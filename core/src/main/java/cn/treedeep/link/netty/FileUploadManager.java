@@ -6,24 +6,44 @@ import io.netty.buffer.ByteBuf;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Copyright © 深圳市树深计算机系统有限公司 版权所有
  *
  * <p>文件管理器，负责文件帧的缓存和保存</p>
+ * <p>
+ * 支持两种模式，由 {@link LinkConfig#isUploadStreaming()} 选择：
+ * <ul>
+ *     <li>缓冲模式：小帧缓存在内存，大帧或超出缓冲预算的帧写入单独的临时文件，上传结束时按帧序号合并</li>
+ *     <li>流式模式：每次上传对应一个 {@link StreamingFileWriter}，帧到达即追加写入，结束时只需fsync和重命名</li>
+ * </ul>
+ * 内存中暂存的帧数据都计入 {@link UploadBufferBudget}。缓冲模式下超出预算的帧改写入磁盘；
+ * 只有无法落盘、必须超出预算暂存在内存中的帧（{@link CacheResult#OVER_BUDGET}）才需要调用方暂停读取对应连接。
+ * <p>
+ * 上传结束时的合并、落盘、删除临时文件等阻塞操作通过 {@link #saveFileAsync} 在独立的I/O线程上执行，
+ * 不占用Netty的EventLoop，同一EventLoop上的其它设备不受大文件保存的影响。
+ * 没有收到结束帧的上传（设备断开、会话过期）由 {@link #abortUploads(int)} 清理。
  *
  * @author 周广明
  * @since 2025/3/30 08:20
@@ -35,6 +55,10 @@ public class FileUploadManager {
         // 创建文件保存目录
         this.videoSaveDir = appConfig.getUploadPath();
         this.tempDir = videoSaveDir + "/temp";
+        this.streaming = appConfig.isUploadStreaming();
+        this.reorderWindow = appConfig.getUploadReorderWindow();
+        this.bufferBudget = new UploadBufferBudget(appConfig.getUploadMaxBufferedBytes(), appConfig.getUploadBackpressurePauseMillis());
+        this.ioExecutor = createIoExecutor(appConfig.getUploadIoThreads());
         createDirectories();
     }
 
@@ -47,8 +71,37 @@ public class FileUploadManager {
     private final String tempDir;
     // 内存缓存阈值（字节），超过此大小的帧将直接写入临时文件
     private static final int MEMORY_THRESHOLD = 1024 * 1024; // 1MB
-    // 小帧内存缓存
-    private final Map<String, Map<Integer, byte[]>> smallFramesCache = new ConcurrentHashMap<>();
+    // 文件摘要算法，协议中文件校验字段固定为16字节
+    private static final FileHashUtil.HashAlgorithm HASH_ALGORITHM = FileHashUtil.HashAlgorithm.MD5;
+    // 合并临时帧文件时的读缓冲区大小
+    private static final int MERGE_BUFFER_SIZE = 64 * 1024;
+    // 小帧内存缓存（持有接收缓冲区的retain切片，不拷贝）
+    private final Map<String, Map<Integer, ByteBuf>> smallFramesCache = new ConcurrentHashMap<>();
+    // 是否使用流式模式
+    private final boolean streaming;
+    // 流式模式下乱序帧最多超前的帧数
+    private final int reorderWindow;
+    // 流式模式下进行中的上传
+    private final Map<String, StreamingFileWriter> streamingWriters = new ConcurrentHashMap<>();
+    // 内存缓冲预算
+    private final UploadBufferBudget bufferBudget;
+    // 保存文件的I/O线程
+    private final ExecutorService ioExecutor;
+    // 关闭时等待进行中的保存完成的最长时间（秒）
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    // 临时文件名的序号：保存在I/O线程上进行时，同一设备、同一任务的新上传可能已经开始，临时文件不能同名
+    private final AtomicLong tempFileSeq = new AtomicLong();
+
+
+    /**
+     * 创建保存文件的I/O线程池：线程数大于0时为固定大小的线程池，否则每次保存使用一个虚拟线程
+     */
+    private static ExecutorService createIoExecutor(int threads) {
+        if (threads > 0) {
+            return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("upload-io-", 0).daemon(true).factory());
+        }
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upload-io-", 0).factory());
+    }
 
 
     /**
@@ -92,39 +145,95 @@ public class FileUploadManager {
 
     /**
      * 缓存文件帧（使用ByteBuf）
+     * <p>
+     * 不接管调用方持有的引用：调用方在本方法返回后照常释放自己的 frameBuf；
+     * 需要缓存在内存中的帧由本方法 retain 一份独立索引的切片，在保存文件或清理缓存时释放。
+     * <p>
+     * 帧序号是协议约定：每次上传从 {@value StreamingFileWriter#FIRST_FRAME_SEQ} 开始连续编号，小于该值的帧直接拒绝。
+     * 返回 {@link CacheResult#REJECTED} 时帧没有被保存，调用方不能确认该帧，否则设备不会重传，保存的文件会缺少数据。
      *
      * @param deviceId 设备ID
      * @param taskId   任务ID
      * @param frameSeq 帧序号
      * @param frameBuf 帧数据ByteBuf
+     * @return 帧的保存结果
      */
-    public void cacheFileFrame(int deviceId, int taskId, int frameSeq, ByteBuf frameBuf) {
+    public CacheResult cacheFileFrame(int deviceId, int taskId, int frameSeq, ByteBuf frameBuf) {
+        if (frameSeq < StreamingFileWriter.FIRST_FRAME_SEQ) {
+            log.warn("拒绝无效的文件帧序号：【设备ID：{}, 任务ID：{}, 帧序号：{}】", deviceId, taskId, frameSeq);
+            return CacheResult.REJECTED;
+        }
+
         // 生成缓存键
         String cacheKey = getCacheKey(deviceId, taskId);
 
+        if (streaming) {
+            return writeStreamingFrame(deviceId, taskId, frameSeq, frameBuf, cacheKey);
+        }
+
         int dataLength = frameBuf.readableBytes();
 
-        // 根据帧大小决定存储方式
-        if (dataLength <= MEMORY_THRESHOLD) {
-            // 小帧存储在内存中 - 从ByteBuf中读取数据到byte数组
-            byte[] frameData = new byte[dataLength];
-            // 保存当前读索引
-            int readerIndex = frameBuf.readerIndex();
-            // 读取数据到数组
-            frameBuf.getBytes(readerIndex, frameData);
+        // 根据帧大小和缓冲预算决定存储方式
+        if (dataLength <= MEMORY_THRESHOLD && bufferBudget.tryAcquire(deviceId, dataLength)) {
+            // 小帧存储在内存中 - 直接retain原始缓冲区的切片
+            ByteBuf frameData = frameBuf.retainedSlice();
 
-            smallFramesCache.computeIfAbsent(cacheKey, k -> new ConcurrentHashMap<>()).put(frameSeq, frameData);
+            ByteBuf previous = smallFramesCache.computeIfAbsent(cacheKey, k -> new ConcurrentHashMap<>()).put(frameSeq, frameData);
+            if (previous != null) {
+                // 重传的帧覆盖旧数据
+                bufferBudget.release(deviceId, previous.readableBytes());
+                previous.release();
+            }
 
             log.debug("内存缓存文件帧(ByteBuf)：【设备ID：{}, 任务ID：{}, 帧序号：{}, 数据长度：{} 字节】",
                     deviceId, taskId, frameSeq, dataLength);
         } else {
-            // 大帧存储在临时文件中
+            // 大帧或预算不足时存储在临时文件中，内存占用不增长，不需要暂停读取
             String tempFilePath = saveTempFrame(deviceId, taskId, frameSeq, frameBuf);
-            if (tempFilePath != null) {
-                frameIndexCache.computeIfAbsent(cacheKey, k -> new TreeMap<>()).put(frameSeq, tempFilePath);
-                log.debug("文件缓存文件帧(ByteBuf)：【设备ID：{}, 任务ID：{}, 帧序号：{}, 数据长度：{} 字节, 临时文件：{}】",
-                        deviceId, taskId, frameSeq, dataLength, tempFilePath);
+            if (tempFilePath == null) {
+                return CacheResult.REJECTED;
+            }
+            String previous = frameIndexCache.computeIfAbsent(cacheKey, k -> new TreeMap<>()).put(frameSeq, tempFilePath);
+            if (previous != null) {
+                // 重传的帧写入了新的临时文件，删除旧的
+                deleteTempFile(previous);
+            }
+            log.debug("文件缓存文件帧(ByteBuf)：【设备ID：{}, 任务ID：{}, 帧序号：{}, 数据长度：{} 字节, 临时文件：{}】",
+                    deviceId, taskId, frameSeq, dataLength, tempFilePath);
+        }
+        return CacheResult.STORED;
+    }
+
+    /**
+     * 流式模式：将帧交给该上传的写入器，首帧到达时创建写入器
+     * <p>
+     * 写入失败后文件内容已不可信，放弃整个上传，由调用方关闭连接让设备重新上传。
+     */
+    private CacheResult writeStreamingFrame(int deviceId, int taskId, int frameSeq, ByteBuf frameBuf, String cacheKey) {
+        StreamingFileWriter writer = streamingWriters.computeIfAbsent(cacheKey, k -> {
+            Path partFile = Paths.get(tempDir, k + "_" + tempFileSeq.incrementAndGet() + ".part");
+            try {
+                return new StreamingFileWriter(deviceId, taskId, partFile, FileHashUtil.newDigest(HASH_ALGORITHM), bufferBudget, reorderWindow);
+            } catch (IOException e) {
+                log.error("创建流式上传文件失败: {}", partFile, e);
+                return null;
             }
+        });
+        if (writer == null) {
+            return CacheResult.REJECTED;
+        }
+
+        try {
+            boolean overBudget = writer.write(frameSeq, frameBuf);
+            log.debug("流式写入文件帧：【设备ID：{}, 任务ID：{}, 帧序号：{}, 数据长度：{} 字节】",
+                    deviceId, taskId, frameSeq, frameBuf.readableBytes());
+            return overBudget ? CacheResult.OVER_BUDGET : CacheResult.STORED;
+        } catch (IOException e) {
+            log.error("流式写入文件帧失败，放弃本次上传：【设备ID：{}, 任务ID：{}, 帧序号：{}】", deviceId, taskId, frameSeq, e);
+            if (streamingWriters.remove(cacheKey, writer)) {
+                writer.abort();
+            }
+            return CacheResult.REJECTED;
         }
     }
 
@@ -138,27 +247,15 @@ public class FileUploadManager {
      * @return 成功保存时返回临时文件的绝对路径，否则返回null
      */
     private String saveTempFrame(int deviceId, int taskId, int frameSeq, ByteBuf frameBuf) {
-        // 根据设备ID、任务ID和帧序列号生成临时文件名
-        String tempFileName = String.format("%d_%d_%d.tmp", deviceId, taskId, frameSeq);
+        // 根据设备ID、任务ID、帧序列号和全局序号生成临时文件名，不与正在保存的上一次上传冲突
+        String tempFileName = String.format("%d_%d_%d_%d.tmp", deviceId, taskId, frameSeq, tempFileSeq.incrementAndGet());
         // 在指定的临时目录中创建文件对象
         File tempFile = new File(tempDir, tempFileName);
 
-        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-            // 保存当前读索引
-            int readerIndex = frameBuf.readerIndex();
-
-            // 将ByteBuf数据写入到临时文件中
-            byte[] buffer = new byte[8192]; // 8KB缓冲区
-            int remaining = frameBuf.readableBytes();
-            int offset = readerIndex;
-
-            while (remaining > 0) {
-                int length = Math.min(buffer.length, remaining);
-                frameBuf.getBytes(offset, buffer, 0, length);
-                fos.write(buffer, 0, length);
-                offset += length;
-                remaining -= length;
-            }
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 将ByteBuf数据直接写入到临时文件中
+            writeFully(channel, frameBuf, 0);
 
             // 返回临时文件的绝对路径
             return tempFile.getAbsolutePath();
@@ -170,7 +267,7 @@ public class FileUploadManager {
     }
 
     /**
-     * 保存文件文件并清理缓存
+     * 保存文件文件并清理缓存，在调用线程上执行
      *
      * @param deviceId    设备ID
      * @param taskId      任务ID
@@ -178,14 +275,55 @@ public class FileUploadManager {
      * @return 保存的文件名和实际帧数
      */
     public FileSaveResult saveFile(int deviceId, int taskId, int totalFrames) {
+        return takeUpload(deviceId, taskId, totalFrames).get();
+    }
+
+    /**
+     * 在I/O线程上保存文件文件并清理缓存
+     * <p>
+     * 本次上传的缓存在调用线程上立即取出，之后到达的同一设备、同一任务的帧属于新的上传，不会被这次保存合并或清理；
+     * 每次上传的临时文件名都带有唯一序号，新上传不会截断或删除这次保存正在使用的文件。
+     * I/O线程池已关闭时退回到调用线程上保存。
+     *
+     * @param deviceId    设备ID
+     * @param taskId      任务ID
+     * @param totalFrames 预期总帧数
+     * @return 保存完成时完成的Future，回调在I/O线程上执行
+     */
+    public CompletableFuture<FileSaveResult> saveFileAsync(int deviceId, int taskId, int totalFrames) {
+        Supplier<FileSaveResult> save = takeUpload(deviceId, taskId, totalFrames);
+        try {
+            return CompletableFuture.supplyAsync(save, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("文件保存线程池已关闭，在当前线程保存：【设备ID：{}, 任务ID：{}】", deviceId, taskId);
+            return CompletableFuture.completedFuture(save.get());
+        }
+    }
+
+    /**
+     * 从缓存中取出一次上传的全部数据，返回执行保存的操作
+     */
+    private Supplier<FileSaveResult> takeUpload(int deviceId, int taskId, int totalFrames) {
         String cacheKey = getCacheKey(deviceId, taskId);
 
-        // 获取内存中的小帧缓存
-        Map<Integer, byte[]> smallFrames = smallFramesCache.getOrDefault(cacheKey, new ConcurrentHashMap<>());
+        if (streaming) {
+            StreamingFileWriter writer = streamingWriters.remove(cacheKey);
+            return () -> finishStreamingFile(deviceId, taskId, totalFrames, writer);
+        }
 
-        // 获取文件中的大帧索引
-        SortedMap<Integer, String> frameIndex = frameIndexCache.getOrDefault(cacheKey, new TreeMap<>());
+        // 内存中的小帧和文件中的大帧索引
+        Map<Integer, ByteBuf> smallFrames = smallFramesCache.remove(cacheKey);
+        SortedMap<Integer, String> frameIndex = frameIndexCache.remove(cacheKey);
+        return () -> mergeFrames(deviceId, taskId, totalFrames,
+                smallFrames != null ? smallFrames : Map.of(),
+                frameIndex != null ? frameIndex : new TreeMap<>());
+    }
 
+    /**
+     * 缓冲模式：合并所有帧保存为文件，然后释放缓存和删除临时文件
+     */
+    private FileSaveResult mergeFrames(int deviceId, int taskId, int totalFrames,
+                                       Map<Integer, ByteBuf> smallFrames, SortedMap<Integer, String> frameIndex) {
         // 计算总帧数
         int memoryFrameCount = smallFrames.size();
         int fileFrameCount = frameIndex.size();
@@ -193,7 +331,7 @@ public class FileUploadManager {
 
         if (totalReceivedFrames == 0) {
             log.error("未找到设备 {} 任务 {} 的文件帧缓存", deviceId, taskId);
-            return new FileSaveResult(null, 0, false);
+            return new FileSaveResult(null, 0, false, null);
         }
 
         // 检查帧数是否匹配
@@ -201,14 +339,55 @@ public class FileUploadManager {
             log.warn("文件帧数不匹配：期望 {} 帧，实际接收 {} 帧", totalFrames, totalReceivedFrames);
         }
 
-        // 合并所有帧并保存文件文件
-        File file = mergeAndSaveFile(deviceId, taskId, smallFrames, frameIndex);
-
-        // 清理缓存和临时文件
-        cleanupResources(cacheKey, frameIndex);
+        // 合并所有帧并保存文件文件，同时按帧序号顺序计算文件摘要
+        MessageDigest digest;
+        File file;
+        try {
+            digest = FileHashUtil.newDigest(HASH_ALGORITHM);
+            file = mergeAndSaveFile(deviceId, taskId, smallFrames, frameIndex, digest);
+        } finally {
+            // 清理缓存和临时文件：合并抛出异常时同样释放切片和预算
+            cleanupResources(deviceId, smallFrames, frameIndex);
+        }
 
         boolean success = file != null;
-        return new FileSaveResult(file, totalReceivedFrames, success);
+        return new FileSaveResult(file, totalReceivedFrames, success, success ? digest.digest() : null);
+    }
+
+    /**
+     * 流式模式：结束上传，fsync后将临时文件重命名为最终文件
+     */
+    private FileSaveResult finishStreamingFile(int deviceId, int taskId, int totalFrames, StreamingFileWriter writer) {
+        if (writer == null) {
+            log.error("未找到设备 {} 任务 {} 的文件帧缓存", deviceId, taskId);
+            return new FileSaveResult(null, 0, false, null);
+        }
+
+        int receivedFrames = writer.receivedFrames();
+        if (receivedFrames != totalFrames) {
+            log.warn("文件帧数不匹配：期望 {} 帧，实际接收 {} 帧", totalFrames, receivedFrames);
+        }
+
+        createDirectories();
+        File file = newSaveFile(deviceId, taskId);
+        try {
+            int frameCount = writer.finish(file);
+            log.info("文件文件保存成功：{}", file.getAbsolutePath());
+            return new FileSaveResult(file, frameCount, true, writer.digest());
+        } catch (IOException e) {
+            log.error("保存文件文件失败", e);
+            writer.abort();
+            return new FileSaveResult(null, receivedFrames, false, null);
+        }
+    }
+
+    /**
+     * 生成最终保存的文件：设备ID_任务ID_时间戳.mp4
+     */
+    private File newSaveFile(int deviceId, int taskId) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String fileName = String.format("%d_%d_%s.mp4", deviceId, taskId, timestamp);
+        return new File(videoSaveDir, fileName);
     }
 
     /**
@@ -218,18 +397,19 @@ public class FileUploadManager {
      * @param taskId      任务ID
      * @param smallFrames 小帧的集合，键为帧序号，值为帧数据
      * @param frameIndex  大帧的集合，键为帧序号，值为帧数据的文件路径
+     * @param digest      文件摘要，写入的数据按顺序累加到其中
      * @return 保存的文件名，保存失败则返回null
      */
-    private File mergeAndSaveFile(int deviceId, int taskId, Map<Integer, byte[]> smallFrames, SortedMap<Integer, String> frameIndex) {
+    private File mergeAndSaveFile(int deviceId, int taskId, Map<Integer, ByteBuf> smallFrames,
+                                  SortedMap<Integer, String> frameIndex, MessageDigest digest) {
         // 生成文件名：设备ID_任务ID_时间戳.mp4
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("%d_%d_%s.mp4", deviceId, taskId, timestamp);
-        File file = new File(videoSaveDir, fileName);
+        File file = newSaveFile(deviceId, taskId);
 
         // 确保保存目录存在
         createDirectories();
 
-        try (FileOutputStream fos = new FileOutputStream(file)) {
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
             // 创建合并的帧序号列表
 
             // 添加内存中的小帧
@@ -239,26 +419,32 @@ public class FileUploadManager {
             allFrames.putAll(frameIndex);
 
             // 按序号顺序写入文件
+            long position = 0;
+            ByteBuffer buffer = null;
             for (Map.Entry<Integer, Object> entry : allFrames.entrySet()) {
-                int frameSeq = entry.getKey();
                 Object frameObj = entry.getValue();
 
-                if (frameObj instanceof byte[]) {
+                if (frameObj instanceof ByteBuf frameBuf) {
                     // 直接写入内存中的帧数据
-                    fos.write((byte[]) frameObj);
+                    FileHashUtil.update(digest, frameBuf);
+                    position += writeFully(out, frameBuf, position);
                 } else if (frameObj instanceof String tempFilePath) {
-                    // 从临时文件读取并写入帧数据
-                    try (FileInputStream fis = new FileInputStream(tempFilePath)) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = fis.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
+                    // 临时文件分块读出，计算摘要后写入
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocate(MERGE_BUFFER_SIZE);
+                    }
+                    try (FileChannel in = FileChannel.open(Paths.get(tempFilePath), StandardOpenOption.READ)) {
+                        while (in.read(buffer.clear()) > 0) {
+                            buffer.flip();
+                            digest.update(buffer.array(), 0, buffer.limit());
+                            while (buffer.hasRemaining()) {
+                                position += out.write(buffer, position);
+                            }
                         }
                     }
                 }
             }
 
-            fos.flush();
             log.info("文件文件保存成功：{}", file.getAbsolutePath());
             return file;
         } catch (IOException e) {
@@ -273,47 +459,160 @@ public class FileUploadManager {
      * 该方法用于清理存储在缓存中的小帧图像数据和帧索引，以及删除之前生成的临时文件
      * 它主要在处理视频帧时，为了释放资源和清理存储空间而调用
      *
-     * @param cacheKey   缓存键，用于标识特定的缓存数据
-     * @param frameIndex 排序映射，包含帧索引和对应的临时文件路径
+     * @param deviceId    设备ID
+     * @param smallFrames 已从缓存中取出的小帧
+     * @param frameIndex  排序映射，包含帧索引和对应的临时文件路径
      */
-    private void cleanupResources(String cacheKey, SortedMap<Integer, String> frameIndex) {
-        // 清理内存缓存
-        smallFramesCache.remove(cacheKey);
-        frameIndexCache.remove(cacheKey);
+    private void cleanupResources(int deviceId, Map<Integer, ByteBuf> smallFrames, SortedMap<Integer, String> frameIndex) {
+        // 释放持有的缓冲区并归还预算
+        long bufferedBytes = 0;
+        for (ByteBuf frameData : smallFrames.values()) {
+            bufferedBytes += frameData.readableBytes();
+            frameData.release();
+        }
+        bufferBudget.release(deviceId, bufferedBytes);
 
         // 删除临时文件
         for (String tempFilePath : frameIndex.values()) {
-            try {
-                Files.deleteIfExists(Paths.get(tempFilePath));
-            } catch (IOException e) {
-                log.warn("删除临时文件失败: {}", tempFilePath, e);
+            deleteTempFile(tempFilePath);
+        }
+    }
+
+    private static void deleteTempFile(String tempFilePath) {
+        try {
+            Files.deleteIfExists(Paths.get(tempFilePath));
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", tempFilePath, e);
+        }
+    }
+
+    /**
+     * 放弃设备所有未结束的上传
+     * <p>
+     * 设备断开或会话过期时调用：没有收到结束帧的上传不会再被保存，
+     * 释放内存中的帧并归还预算，删除临时帧文件，流式模式下关闭并删除 {@code .part} 文件。
+     * 已经交给I/O线程保存的上传不受影响。应在该设备连接的EventLoop上调用，避免与正在缓存的帧交错。
+     *
+     * @param deviceId 设备ID
+     * @return 放弃的上传数
+     */
+    public int abortUploads(int deviceId) {
+        String prefix = deviceId + "_";
+        int aborted = 0;
+
+        for (String cacheKey : streamingWriters.keySet()) {
+            if (!cacheKey.startsWith(prefix)) {
+                continue;
+            }
+            StreamingFileWriter writer = streamingWriters.remove(cacheKey);
+            if (writer != null) {
+                writer.abort();
+                aborted++;
+            }
+        }
+
+        for (String cacheKey : smallFramesCache.keySet()) {
+            if (!cacheKey.startsWith(prefix)) {
+                continue;
+            }
+            Map<Integer, ByteBuf> smallFrames = smallFramesCache.remove(cacheKey);
+            SortedMap<Integer, String> frameIndex = frameIndexCache.remove(cacheKey);
+            cleanupResources(deviceId, smallFrames != null ? smallFrames : Map.of(),
+                    frameIndex != null ? frameIndex : new TreeMap<>());
+            aborted++;
+        }
+
+        // 只有大帧的上传
+        for (String cacheKey : frameIndexCache.keySet()) {
+            if (!cacheKey.startsWith(prefix)) {
+                continue;
             }
+            SortedMap<Integer, String> frameIndex = frameIndexCache.remove(cacheKey);
+            if (frameIndex != null) {
+                cleanupResources(deviceId, Map.of(), frameIndex);
+                aborted++;
+            }
+        }
+
+        if (aborted > 0) {
+            log.info("放弃未完成的上传：【设备ID：{}, 上传数：{}】", deviceId, aborted);
         }
+        return aborted;
+    }
+
+    /**
+     * 上传缓冲预算，可读取各设备和总的缓冲字节数，也用于对连接施加背压
+     */
+    public UploadBufferBudget getBufferBudget() {
+        return bufferBudget;
+    }
+
+    /**
+     * 关闭I/O线程池，等待进行中的保存完成
+     */
+    public void shutdown() {
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("文件保存在 {} 秒内未全部完成", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 将ByteBuf的可读数据写入文件指定位置，不修改ByteBuf的读索引
+     *
+     * @return 写入的字节数
+     */
+    private static int writeFully(FileChannel channel, ByteBuf buf, long position) throws IOException {
+        int index = buf.readerIndex();
+        int length = buf.readableBytes();
+        int written = 0;
+        while (written < length) {
+            written += buf.getBytes(index + written, channel, position + written, length - written);
+        }
+        return length;
+    }
+
+    /**
+     * 文件帧的保存结果
+     */
+    public enum CacheResult {
+        /**
+         * 已保存（内存、临时文件或已落盘）
+         */
+        STORED,
+        /**
+         * 已保存，但只能超出缓冲预算暂存在内存中（流式模式下的乱序帧），调用方应暂停读取该连接
+         */
+        OVER_BUDGET,
+        /**
+         * 帧序号无效或写入失败，帧没有被保存
+         */
+        REJECTED
     }
 
     /**
      * 文件保存结果
+     *
+     * @param fileHash 写入文件时同步计算的MD5摘要，保存失败时为null
      */
-    public record FileSaveResult(File file, int frameCount, boolean success) {
+    public record FileSaveResult(File file, int frameCount, boolean success, byte[] fileHash) {
 
         /**
          * 获取文件的哈希值
          * <p>
-         * 此方法用于获取文件名的字节表示，作为文件的简单哈希值
-         * 如果文件名为空，则返回null，表示没有文件名或不支持哈希计算
+         * 摘要在写入文件时已经计算好，这里直接返回，不会回读文件，可多次调用
          *
-         * @return 文件名的字节数组如果文件名为空，则返回null
+         * @return 文件的MD5摘要，保存失败时返回空数组
          */
         public byte[] getFileHash() {
-            if (file == null) {
+            if (file == null || fileHash == null) {
                 return new byte[0];
             }
-            // return file.getName().getBytes();
-            try {
-                return FileHashUtil.calculateFileHash(file.getAbsolutePath(), FileHashUtil.HashAlgorithm.MD5);
-            } catch (IOException | NoSuchAlgorithmException e) {
-                throw new RuntimeException(e);
-            }
+            return fileHash;
         }
     }
 
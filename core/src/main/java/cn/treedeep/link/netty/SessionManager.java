@@ -1,20 +1,34 @@
 package cn.treedeep.link.netty;
 
+import cn.treedeep.link.util.ConcurrentIntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SessionManager {
     private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
 
-    private final ConcurrentMap<Integer, DeviceSession> sessions = new ConcurrentHashMap<>();
+    // 设备ID → 会话，int键不装箱，心跳查找无分配
+    private final ConcurrentIntObjectMap<DeviceSession> sessions = new ConcurrentIntObjectMap<>();
     private final AtomicInteger sessionIdCounter = new AtomicInteger(1);
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 会话监听器，在创建会话的线程中同步回调
+     */
+    public interface SessionListener {
+        void onSessionCreated(DeviceSession session);
+    }
+
+    /**
+     * 注册会话监听器
+     */
+    public void addSessionListener(SessionListener listener) {
+        listeners.add(listener);
+    }
 
     /**
      * 获取设备会话
@@ -50,6 +64,21 @@ public class SessionManager {
         return removed;
     }
 
+    /**
+     * 仅当设备当前的会话是 {@code session} 时移除，避免误删同一设备重连后的新会话
+     *
+     * @param deviceId 设备ID
+     * @param session  期望移除的会话
+     * @return 是否移除
+     */
+    public boolean removeSession(int deviceId, DeviceSession session) {
+        boolean removed = sessions.remove(deviceId, session);
+        if (removed) {
+            log.info("设备会话已移除: {}", session.getSessionId());
+        }
+        return removed;
+    }
+
     /**
      * 创建设备会话
      *
@@ -67,10 +96,12 @@ public class SessionManager {
         short sessionId = generateSessionId(deviceId);
         DeviceSession session = new DeviceSession(deviceId);
         session.setSessionId(sessionId);
-        session.setLastActiveTime(LocalDateTime.now());
 
         sessions.put(deviceId, session);
         log.debug("设备会话已创建: {} -> sessionId: {}", deviceId, sessionId);
+        for (SessionListener listener : listeners) {
+            listener.onSessionCreated(session);
+        }
         return session;
     }
 
@@ -81,7 +112,7 @@ public class SessionManager {
         DeviceSession session = sessions.get(deviceId);
 
         if (session != null) {
-            session.setLastActiveTime(LocalDateTime.now());
+            session.touch();
             session.setTaskId(taskId);
             session.setStatus(DeviceSession.SessionStatus.ACTIVE);
         }
@@ -93,7 +124,7 @@ public class SessionManager {
      * @return 会话列表
      */
     public List<DeviceSession> getAllSessions() {
-        return new ArrayList<>(sessions.values());
+        return sessions.values();
     }
 
     /**
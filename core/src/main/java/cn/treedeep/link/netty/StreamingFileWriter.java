@@ -0,0 +1,244 @@
+package cn.treedeep.link.netty;
+
+import cn.treedeep.link.util.FileHashUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>流式上传写入器，一次上传（设备ID + 任务ID）对应一个实例</p>
+ * <p>
+ * 首帧到达时打开 {@code .part} 文件，之后每一帧到达即按顺序追加写入，不在内存中保留整个文件。
+ * 帧序号从1开始连续编号，帧本身不携带偏移量，某一帧的写入位置只有在它之前的帧全部写入后才能确定：
+ * <ul>
+ *     <li>按序到达的帧直接写入当前写位置</li>
+ *     <li>乱序到达的帧以retain切片的形式记录在稀疏索引（帧序号 → 数据）中，只占用缺口之后的部分，并计入缓冲预算；
+ *     超前待写入帧 {@code reorderWindow} 帧以上的帧直接拒绝，单个上传暂存的帧数不超过窗口大小</li>
+ *     <li>缺口补齐后，索引中连续的帧合并为一次聚集写（gathering write）落盘</li>
+ * </ul>
+ * 文件摘要在落盘的同时按帧序号顺序累加，结束时只需 fsync 并将 {@code .part} 文件重命名为最终文件，不再回读。
+ * <p>
+ * 同一上传的帧来自同一连接，正常情况下由同一个EventLoop线程串行调用，方法加锁只是防御性的。
+ *
+ * @author 周广明
+ * @since 2025/4/12 16:40
+ */
+@Slf4j
+class StreamingFileWriter {
+
+    // 帧序号起始值，协议约定，与设备端保持一致；更小的序号由 FileUploadManager 拒绝
+    static final int FIRST_FRAME_SEQ = 1;
+
+    private final int deviceId;
+    private final int taskId;
+    private final Path partFile;
+    private final FileChannel channel;
+    // 随写入累加的文件摘要
+    private final MessageDigest digest;
+    // 暂存的乱序帧计入缓冲预算
+    private final UploadBufferBudget bufferBudget;
+    // 乱序帧最多超前待写入帧的帧数
+    private final int reorderWindow;
+
+    // 下一个待写入的帧序号
+    private int nextSeq = FIRST_FRAME_SEQ;
+    // 当前写位置（文件长度）
+    private long writePosition;
+    // 已落盘的帧数
+    private int writtenFrames;
+    // 乱序帧的稀疏索引：只记录尚未确定写入位置的帧
+    private final TreeMap<Integer, ByteBuf> pendingFrames = new TreeMap<>();
+    private boolean closed;
+
+    StreamingFileWriter(int deviceId, int taskId, Path partFile, MessageDigest digest,
+                        UploadBufferBudget bufferBudget, int reorderWindow) throws IOException {
+        this.deviceId = deviceId;
+        this.taskId = taskId;
+        this.partFile = partFile;
+        this.digest = digest;
+        this.bufferBudget = bufferBudget;
+        this.reorderWindow = Math.max(1, reorderWindow);
+        this.channel = FileChannel.open(partFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * 写入一帧
+     * <p>
+     * 不接管调用方持有的引用：需要暂存的乱序帧由本方法retain切片。
+     *
+     * @param frameSeq 帧序号
+     * @param frameBuf 帧数据
+     * @return 乱序帧超出缓冲预算暂存在内存中时返回true
+     * @throws IOException 上传已结束、写入失败，或帧序号超出乱序窗口
+     */
+    synchronized boolean write(int frameSeq, ByteBuf frameBuf) throws IOException {
+        if (closed) {
+            throw new IOException("上传已结束：" + partFile);
+        }
+
+        if (frameSeq < nextSeq) {
+            // 已落盘的帧被重传，数据以首次写入为准
+            log.debug("忽略已写入的重传帧：【设备ID：{}, 任务ID：{}, 帧序号：{}】", deviceId, taskId, frameSeq);
+            return false;
+        }
+
+        if (frameSeq > nextSeq) {
+            if (frameSeq - nextSeq > reorderWindow) {
+                throw new IOException("乱序帧超出窗口：帧序号 " + frameSeq + "，等待帧序号 " + nextSeq + "，窗口 " + reorderWindow);
+            }
+            ByteBuf previous = pendingFrames.put(frameSeq, frameBuf.retainedSlice());
+            // 乱序帧没有写入位置，只能暂存在内存中，超出预算也要计入
+            boolean overBudget = !bufferBudget.tryAcquire(deviceId, frameBuf.readableBytes());
+            if (overBudget) {
+                bufferBudget.acquire(deviceId, frameBuf.readableBytes());
+            }
+            if (previous != null) {
+                bufferBudget.release(deviceId, previous.readableBytes());
+                previous.release();
+            }
+            log.debug("乱序帧暂存：【设备ID：{}, 任务ID：{}, 帧序号：{}, 等待帧序号：{}, 暂存帧数：{}】",
+                    deviceId, taskId, frameSeq, nextSeq, pendingFrames.size());
+            return overBudget;
+        }
+
+        // 当前帧加上索引中紧随其后的连续帧，一次写入
+        List<ByteBuf> run = new ArrayList<>();
+        run.add(frameBuf);
+        nextSeq++;
+        Map.Entry<Integer, ByteBuf> head;
+        while ((head = pendingFrames.firstEntry()) != null && head.getKey() == nextSeq) {
+            run.add(pendingFrames.pollFirstEntry().getValue());
+            nextSeq++;
+        }
+
+        try {
+            append(run);
+        } finally {
+            // 第一个是调用方的缓冲区，其余是暂存时retain的切片
+            long pendingBytes = 0;
+            for (int i = 1; i < run.size(); i++) {
+                pendingBytes += run.get(i).readableBytes();
+                run.get(i).release();
+            }
+            bufferBudget.release(deviceId, pendingBytes);
+        }
+        return false;
+    }
+
+    /**
+     * 已接收的帧数（已落盘 + 暂存）
+     */
+    synchronized int receivedFrames() {
+        return writtenFrames + pendingFrames.size();
+    }
+
+    /**
+     * 结束上传：写入剩余的暂存帧，fsync后重命名为最终文件
+     * <p>
+     * 存在缺失帧时，缺口之后的帧按序号顺序紧接着写入，与缓冲模式的合并结果一致。
+     *
+     * @param target 最终文件
+     * @return 实际写入的帧数
+     */
+    synchronized int finish(File target) throws IOException {
+        try {
+            if (!pendingFrames.isEmpty()) {
+                log.warn("文件存在缺失帧：【设备ID：{}, 任务ID：{}, 首个缺失帧序号：{}, 其后已接收帧数：{}】",
+                        deviceId, taskId, nextSeq, pendingFrames.size());
+                append(new ArrayList<>(pendingFrames.values()));
+            }
+            channel.force(false);
+        } finally {
+            close();
+        }
+
+        try {
+            Files.move(partFile, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return writtenFrames;
+    }
+
+    /**
+     * 已写入数据的摘要，在 {@link #finish(File)} 之后调用
+     */
+    synchronized byte[] digest() {
+        return digest.digest();
+    }
+
+    /**
+     * 放弃上传：释放暂存帧，关闭并删除 {@code .part} 文件
+     */
+    synchronized void abort() {
+        close();
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", partFile, e);
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long pendingBytes = 0;
+        for (ByteBuf frame : pendingFrames.values()) {
+            pendingBytes += frame.readableBytes();
+            frame.release();
+        }
+        pendingFrames.clear();
+        bufferBudget.release(deviceId, pendingBytes);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭临时文件失败: {}", partFile, e);
+        }
+    }
+
+    // 聚集写：把若干帧的nioBuffers合并成一个数组写入，直接内存的ByteBuf不产生拷贝
+    private void append(List<ByteBuf> frames) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>(frames.size());
+        long length = 0;
+        for (ByteBuf frame : frames) {
+            int readable = frame.readableBytes();
+            if (readable == 0) {
+                continue;
+            }
+            for (ByteBuffer buffer : frame.nioBuffers(frame.readerIndex(), readable)) {
+                buffers.add(buffer);
+            }
+            length += readable;
+            FileHashUtil.update(digest, frame);
+        }
+
+        ByteBuffer[] srcs = buffers.toArray(new ByteBuffer[0]);
+        long written = 0;
+        channel.position(writePosition);
+        while (written < length) {
+            written += channel.write(srcs);
+        }
+
+        writePosition += length;
+        writtenFrames += frames.size();
+    }
+}
@@ -0,0 +1,181 @@
+package cn.treedeep.link.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>上传缓冲区全局预算</p>
+ * <p>
+ * 统计所有上传中暂存在内存里的帧数据（接收缓冲区的retain切片，来自池化的直接内存），
+ * 按设备和总量分别计数，总量受 {@link #getMaxBufferedBytes()} 限制：
+ * <ul>
+ *     <li>{@link #tryAcquire(int, int)} 超出预算时返回false，调用方改为写入磁盘，内存占用不会继续增长</li>
+ *     <li>{@link #pauseIfExhausted(Channel)} 预算耗尽时关闭该连接的autoRead，
+ *     总量降到预算一半以下或暂停超过 {@code pauseMillis} 后恢复读取。
+ *     只在帧无法改写磁盘、只能超出预算暂存在内存中时调用，已经落盘的帧不需要限流</li>
+ * </ul>
+ * 暂停有时间上限：缓冲模式下数据要等上传结束才会释放，而上传结束本身需要继续读取，不设上限所有连接可能同时卡住。
+ * 未完成的上传在设备断开或会话过期时放弃，占用的预算随之逐帧归还，不会永久占住预算。
+ *
+ * @author 周广明
+ * @since 2025/4/13 09:30
+ */
+@Slf4j
+public class UploadBufferBudget {
+
+    // 连接上是否已注册关闭监听：同一连接在长时间上传中会多次暂停，监听只注册一次
+    private static final AttributeKey<Boolean> CLOSE_LISTENER = AttributeKey.valueOf("link.uploadBudgetCloseListener");
+
+    // 最大缓冲字节数，小于等于0表示不限制
+    private final long maxBufferedBytes;
+    // 恢复读取的低水位
+    private final long resumeBytes;
+    // 单次暂停读取的最长时间（毫秒）
+    private final long pauseMillis;
+
+    private final AtomicLong totalBufferedBytes = new AtomicLong();
+    private final Map<Integer, AtomicLong> deviceBufferedBytes = new ConcurrentHashMap<>();
+    private final Set<Channel> pausedChannels = ConcurrentHashMap.newKeySet();
+
+    public UploadBufferBudget(long maxBufferedBytes, long pauseMillis) {
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.resumeBytes = maxBufferedBytes / 2;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * 尝试占用预算
+     *
+     * @param deviceId 设备ID
+     * @param bytes    字节数
+     * @return 预算充足返回true，否则不做任何计数并返回false
+     */
+    public boolean tryAcquire(int deviceId, int bytes) {
+        if (maxBufferedBytes > 0) {
+            long current;
+            do {
+                current = totalBufferedBytes.get();
+                if (current + bytes > maxBufferedBytes) {
+                    return false;
+                }
+            } while (!totalBufferedBytes.compareAndSet(current, current + bytes));
+        } else {
+            totalBufferedBytes.addAndGet(bytes);
+        }
+        deviceBufferedBytes.computeIfAbsent(deviceId, k -> new AtomicLong()).addAndGet(bytes);
+        return true;
+    }
+
+    /**
+     * 强制占用预算（无法改为写入磁盘的数据），允许超出上限
+     *
+     * @param deviceId 设备ID
+     * @param bytes    字节数
+     */
+    public void acquire(int deviceId, int bytes) {
+        totalBufferedBytes.addAndGet(bytes);
+        deviceBufferedBytes.computeIfAbsent(deviceId, k -> new AtomicLong()).addAndGet(bytes);
+    }
+
+    /**
+     * 归还预算，总量降到低水位以下时恢复所有暂停的连接
+     *
+     * @param deviceId 设备ID
+     * @param bytes    字节数
+     */
+    public void release(int deviceId, long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        long total = totalBufferedBytes.addAndGet(-bytes);
+        AtomicLong device = deviceBufferedBytes.get(deviceId);
+        if (device != null && device.addAndGet(-bytes) <= 0) {
+            deviceBufferedBytes.remove(deviceId, device);
+        }
+
+        if (total <= resumeBytes && !pausedChannels.isEmpty()) {
+            pausedChannels.forEach(this::resume);
+        }
+    }
+
+    /**
+     * 预算耗尽时暂停从该连接读取
+     *
+     * @param channel 连接
+     */
+    public void pauseIfExhausted(Channel channel) {
+        if (!isExhausted() || !pausedChannels.add(channel)) {
+            return;
+        }
+        channel.config().setAutoRead(false);
+        log.warn("上传缓冲区预算耗尽，暂停读取：【连接：{}, 已缓冲：{} 字节, 预算：{} 字节】",
+                channel.remoteAddress(), totalBufferedBytes.get(), maxBufferedBytes);
+
+        channel.eventLoop().schedule(() -> resume(channel), pauseMillis, TimeUnit.MILLISECONDS);
+        if (channel.attr(CLOSE_LISTENER).setIfAbsent(Boolean.TRUE) == null) {
+            channel.closeFuture().addListener(future -> pausedChannels.remove(channel));
+        }
+    }
+
+    private void resume(Channel channel) {
+        if (pausedChannels.remove(channel)) {
+            channel.config().setAutoRead(true);
+            log.debug("恢复读取：【连接：{}, 已缓冲：{} 字节】", channel.remoteAddress(), totalBufferedBytes.get());
+        }
+    }
+
+    /**
+     * 预算是否已耗尽
+     */
+    public boolean isExhausted() {
+        return maxBufferedBytes > 0 && totalBufferedBytes.get() >= maxBufferedBytes;
+    }
+
+    /**
+     * 预算上限（字节），小于等于0表示不限制
+     */
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * 当前缓冲的总字节数
+     */
+    public long getTotalBufferedBytes() {
+        return totalBufferedBytes.get();
+    }
+
+    /**
+     * 指定设备当前缓冲的字节数
+     */
+    public long getBufferedBytes(int deviceId) {
+        AtomicLong device = deviceBufferedBytes.get(deviceId);
+        return device == null ? 0 : device.get();
+    }
+
+    /**
+     * 各设备当前缓冲的字节数快照，按设备ID排序
+     */
+    public Map<Integer, Long> getDeviceBufferedBytes() {
+        Map<Integer, Long> snapshot = new TreeMap<>();
+        deviceBufferedBytes.forEach((deviceId, bytes) -> snapshot.put(deviceId, bytes.get()));
+        return snapshot;
+    }
+
+    /**
+     * 当前被暂停读取的连接数
+     */
+    public int getPausedChannelCount() {
+        return pausedChannels.size();
+    }
+}
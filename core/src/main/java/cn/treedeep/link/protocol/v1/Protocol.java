@@ -7,6 +7,11 @@ public interface Protocol {
     short START_FLAG = (short) 0xAA55;
     short END_FLAG = (short) 0x55AA;
 
+    /**
+     * 按长度字段分帧的解码器
+     * <p>
+     * {@link Pv1FrameDecoder} 已自行分帧和重新同步，管道中不再需要它，保留给只需要按帧切分原始数据的场景。
+     */
     static LengthFieldBasedFrameDecoder lengthFieldBasedFrameDecoder() {
         return new LengthFieldBasedFrameDecoder(
                 65535,  // maxFrameLength (2字节无符号最大值为0xFFFF)
@@ -24,6 +24,7 @@ import lombok.Data;
  * │              │ 结束符        │ 2            │ 固定0x55AA                    │
  * └──────────────┴──────────────┴──────────────┴──────────────────────────────┘
  * </pre>
+ * 子类通过 {@link #payloadLength()} 报告扩展数据的长度，编码器据此一次分配大小正好的输出缓冲区。
  *
  * @author 周广明
  * @since 2025/3/30 08:53
@@ -36,5 +37,24 @@ public abstract class Pv1BaseFrame implements Protocol {
     private short sessionId;
     private int taskId;
 
+    /**
+     * 不含扩展数据的帧长度：协议头(6) + 基础字段(10) + 协议尾(4)
+     */
+    public static final int FIXED_LENGTH = 20;
+
     public abstract byte getCommand();
+
+    /**
+     * 扩展数据编码后的长度（字节），没有扩展数据的帧为0
+     */
+    public int payloadLength() {
+        return 0;
+    }
+
+    /**
+     * 整帧编码后的长度（字节）
+     */
+    public int encodedLength() {
+        return FIXED_LENGTH + payloadLength();
+    }
 }
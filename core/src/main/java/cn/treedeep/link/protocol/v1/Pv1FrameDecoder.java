@@ -1,7 +1,7 @@
 package cn.treedeep.link.protocol.v1;
 
-import cn.treedeep.link.util.CRC;
-import cn.treedeep.link.util.HexUtil;
+import cn.treedeep.link.netty.ChannelManager;
+import cn.treedeep.link.util.CRC16CCITT;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
@@ -24,6 +24,14 @@ import static cn.treedeep.link.protocol.v1.Protocol.START_FLAG;
  * │ 2字节    │ 1字节 │ 2字节 │ 1字节 │ 4字节    │ N字节         │ 2字节 │ 2字节 │
  * └─────────┴───────┴──────┴──────┴─────────┴───────────────┴──────┴──────┘
  * </pre>
+ * 分帧、重新同步、校验和解析在一次遍历中完成，管道中不需要再放 {@link Protocol#lengthFieldBasedFrameDecoder()}：
+ * <ul>
+ *     <li>读取位置不是起始符时，用 {@link ByteBuf#indexOf(int, int, byte)} 查找下一个0xAA，再确认其后是0x55，跳过中间的垃圾数据</li>
+ *     <li>长度字段之后的数据未到齐时直接返回，不移动读索引，也不需要mark/reset</li>
+ *     <li>CRC直接在累积缓冲区上计算，数据域以切片交给 {@link #parseByCommand}，不retain、不拷贝</li>
+ *     <li>CRC错误的帧整帧丢弃；结束符错误说明长度字段不可信，只跳过起始符后重新同步</li>
+ * </ul>
+ * 需要查看原始帧时使用 {@link WireTrace}，不在日志中逐帧打印十六进制。
  */
 @Slf4j
 public abstract class Pv1FrameDecoder extends ByteToMessageDecoder {
@@ -35,150 +43,121 @@ public abstract class Pv1FrameDecoder extends ByteToMessageDecoder {
     private static final int TAIL_FIXED_LEN = 4;
     // 最小有效帧长度
     private static final int MIN_FRAME_LEN = HEADER_FIXED_LEN + PAYLOAD_FIXED_LEN + TAIL_FIXED_LEN;
+    // 长度字段偏移：起始符(2) + 版本(1)
+    private static final int LENGTH_FIELD_OFFSET = 3;
+    // 起始符的高、低字节
+    private static final byte START_FLAG_HIGH = (byte) (START_FLAG >>> 8);
+    private static final byte START_FLAG_LOW = (byte) START_FLAG;
+
+    // 线路抓包，可为null
+    private final WireTrace wireTrace;
+
+    protected Pv1FrameDecoder() {
+        this(null);
+    }
+
+    protected Pv1FrameDecoder(WireTrace wireTrace) {
+        this.wireTrace = wireTrace;
+    }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        // 1. 滑动窗口查找起始符
-        while (in.readableBytes() >= MIN_FRAME_LEN) {
-            in.markReaderIndex();
-
-            int startIndex = findStartFlag(in);
-            if (startIndex == -1) {
-                log.warn("未找到起始符，可用数据: {} bytes", in.readableBytes());
-                return;
+        while (in.readableBytes() >= HEADER_FIXED_LEN) {
+            int start = in.readerIndex();
+
+            // 1. 读取位置不是起始符时重新同步
+            if (in.getShort(start) != START_FLAG) {
+                int next = indexOfStartFlag(in, start + 1);
+                log.warn("未找到起始符，丢弃 {} 字节", next - start);
+                in.readerIndex(next);
+                continue;
             }
 
-            // 2. 解析协议头
-            FrameHeader header = parseHeader(in);
-            if (header == null) {
-                log.warn("协议头解析失败");
+            // 2. 校验长度，数据未到齐时等待
+            int totalLength = in.getUnsignedShort(start + LENGTH_FIELD_OFFSET);
+            if (totalLength < MIN_FRAME_LEN) {
+                log.error("无效帧长度: {} (最小要求: {})", totalLength, MIN_FRAME_LEN);
+                in.readerIndex(start + 2);
+                sendErrorResponse(ctx);
+                continue;
+            }
+            if (in.readableBytes() < totalLength) {
                 return;
             }
 
-            // 3. 校验数据长度
-            if (!validateFrameLength(in, header.totalLength)) {
+            // 3. 校验协议尾
+            int tailIndex = start + totalLength - TAIL_FIXED_LEN;
+            if (in.getShort(tailIndex + 2) != END_FLAG) {
+                log.error("无效结束符: 0x{}", Integer.toHexString(in.getUnsignedShort(tailIndex + 2)));
+                in.readerIndex(start + 2);
                 sendErrorResponse(ctx);
-                return;
+                continue;
             }
-
-            // 4. 提取数据域
-            ByteBuf payload = extractPayload(in, header.totalLength);
-
-            // 5. 校验协议尾
-            if (!validateFrameTail(in, header.totalLength)) {
-                payload.release();
+            int crcCalculated = CRC16CCITT.INSTANCE.calculate(in, start, totalLength - TAIL_FIXED_LEN);
+            int crcReceived = in.getUnsignedShort(tailIndex);
+            in.readerIndex(start + totalLength);
+            if (crcCalculated != crcReceived) {
+                log.error("CRC校验失败: 计算=0x{}, 接收=0x{}",
+                        Integer.toHexString(crcCalculated), Integer.toHexString(crcReceived));
                 sendErrorResponse(ctx);
-                return;
+                continue;
             }
 
-            // 6. 解析业务对象
-            parseBusinessFrame(header.command, payload, out);
+            // 4. 解析业务对象
+            parseBusinessFrame(in, start, totalLength, out);
         }
     }
 
-    // 查找起始符0xAA55，返回起始位置
-    private int findStartFlag(ByteBuf in) {
-        while (in.readableBytes() >= 2) {
-            int readerIndex = in.readerIndex();
-            if (in.getShort(readerIndex) == START_FLAG) {
-                return readerIndex;
+    /**
+     * 从 fromIndex 开始查找起始符
+     *
+     * @return 起始符的位置；可读数据以0xAA结尾时返回该字节的位置，等待下一个字节；找不到时返回写索引
+     */
+    private static int indexOfStartFlag(ByteBuf in, int fromIndex) {
+        int writerIndex = in.writerIndex();
+        int index = fromIndex;
+        while (index < writerIndex) {
+            index = in.indexOf(index, writerIndex, START_FLAG_HIGH);
+            if (index < 0) {
+                return writerIndex;
             }
-            in.skipBytes(1); // 滑动窗口
-        }
-        return -1;
-    }
-
-    // 解析协议头
-    private FrameHeader parseHeader(ByteBuf in) {
-        try {
-            FrameHeader header = new FrameHeader(in.readShort(), in.readByte(), in.readUnsignedShort(), in.readByte());
-            log.debug("解析协议头: startFlag=0x{}, version={}, length={}, cmd=0x{}",
-                    Integer.toHexString(header.startFlag & 0xFFFF),
-                    header.version,
-                    header.totalLength,
-                    Integer.toHexString(header.command & 0xFF));
-
-            return header;
-        } catch (Exception e) {
-            log.error("协议头解析异常", e);
-            return null;
-        }
-    }
-
-    // 校验帧长度有效性
-    private boolean validateFrameLength(ByteBuf in, int totalLength) {
-        if (totalLength < MIN_FRAME_LEN) {
-            log.error("无效帧长度: {} (最小要求: {})", totalLength, MIN_FRAME_LEN);
-            return false;
-        }
-        if (in.readableBytes() < totalLength - HEADER_FIXED_LEN) {
-            log.warn("数据不完整，需要: {} 实际: {}", totalLength, in.readableBytes() + HEADER_FIXED_LEN);
-            in.resetReaderIndex();
-            return false;
-        }
-        return true;
-    }
-
-    // 提取数据域（包含基础字段和扩展数据）
-    private ByteBuf extractPayload(ByteBuf in, int totalLength) {
-        int payloadLength = totalLength - HEADER_FIXED_LEN - TAIL_FIXED_LEN;
-        ByteBuf payload = in.readSlice(payloadLength).retain(); // 需要手动释放
-
-        log.debug("提取数据域: length={}, data={}", payloadLength, HexUtil.formatHexString(payload.duplicate()));
-
-        return payload;
-    }
-
-    // 校验CRC和结束符
-    private boolean validateFrameTail(ByteBuf in, int totalLength) {
-        // 计算CRC校验范围（从起始符到数据域结束）
-        int crcStart = in.readerIndex() - totalLength + TAIL_FIXED_LEN;
-        ByteBuf crcRange = in.slice(crcStart, totalLength - TAIL_FIXED_LEN);
-
-        long crcCalculated = CRC.calculateCRC(CRC.Parameters.CCITT, crcRange.nioBuffer());
-        long crcReceived = in.readUnsignedShort();
-
-        // 校验结束符
-        short endFlag = in.readShort();
-
-        log.debug("CRC校验: 计算=0x{}, 接收=0x{}, 结束符=0x{}",
-                Long.toHexString(crcCalculated),
-                Long.toHexString(crcReceived),
-                Integer.toHexString(endFlag & 0xFFFF));
-
-        if (crcCalculated != crcReceived) {
-            log.error("CRC校验失败");
-            return false;
-        }
-        if (endFlag != END_FLAG) {
-            log.error("无效结束符");
-            return false;
+            if (index + 1 == writerIndex || in.getByte(index + 1) == START_FLAG_LOW) {
+                return index;
+            }
+            index++;
         }
-        return true;
+        return writerIndex;
     }
 
-    // 解析业务对象
-    private void parseBusinessFrame(byte cmdType, ByteBuf payload, List<Object> out) {
+    // 解析业务对象，数据域是累积缓冲区的切片，需要保留的数据由 parseByCommand 自行retain
+    private void parseBusinessFrame(ByteBuf in, int start, int totalLength, List<Object> out) {
+        byte cmdType = in.getByte(start + HEADER_FIXED_LEN - 1);
+        int payloadIndex = start + HEADER_FIXED_LEN;
         try {
             // 读取基础字段
-            int deviceId = payload.readInt();
-            short sessionId = payload.readShort();
-            int taskId = payload.readInt();
+            int deviceId = in.getInt(payloadIndex);
+            short sessionId = in.getShort(payloadIndex + 4);
+            int taskId = in.getInt(payloadIndex + 6);
+
+            if (wireTrace != null && wireTrace.shouldTrace(deviceId)) {
+                wireTrace.record(WireTrace.Direction.INBOUND, deviceId, cmdType, in, start, totalLength);
+            }
 
             // 解析指令特定数据
-            Pv1BaseFrame frame = parseByCommand(cmdType, payload);
+            ByteBuf data = in.slice(payloadIndex + PAYLOAD_FIXED_LEN, totalLength - MIN_FRAME_LEN);
+            Pv1BaseFrame frame = parseByCommand(cmdType, data);
             if (frame != null) {
                 frame.setDeviceId(deviceId);
                 frame.setSessionId(sessionId);
                 frame.setTaskId(taskId);
                 out.add(frame);
-                log.debug("成功解析帧: cmd=0x{}, deviceId={}", Integer.toHexString(cmdType & 0xFF), deviceId);
+                if (log.isDebugEnabled()) {
+                    log.debug("成功解析帧: cmd=0x{}, deviceId={}, length={}", Integer.toHexString(cmdType & 0xFF), deviceId, totalLength);
+                }
             }
 
         } catch (Exception e) {
             log.error("业务数据解析异常", e);
-        } finally {
-            payload.release(); // 确保释放资源
         }
     }
 
@@ -189,13 +168,16 @@ public abstract class Pv1FrameDecoder extends ByteToMessageDecoder {
     protected abstract void sendErrorResponse(ChannelHandlerContext ctx);
 
     /**
-     * Copyright © 深圳市树深计算机系统有限公司 版权所有
+     * 解码器直接写出的帧不经过编码器，由子类调用本方法记录到线路抓包，记录在该连接注册的设备名下
      *
-     * <p>协议头</p>
-     *
-     * @author 周广明
-     * @since 2025/4/2 22:35
+     * @param template 编码该帧的模板
+     * @param frame    编码好的帧
      */
-    private record FrameHeader(short startFlag, byte version, int totalLength, byte command) {
+    protected void traceOutbound(ChannelHandlerContext ctx, Pv1FrameTemplate template, ByteBuf frame) {
+        if (wireTrace == null) {
+            return;
+        }
+        Integer deviceId = ctx.channel().attr(ChannelManager.DEVICE_ID).get();
+        template.trace(wireTrace, deviceId != null ? deviceId : 0, frame);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,6 @@
 package cn.treedeep.link.protocol.v1;
 
-import cn.treedeep.link.util.CRC;
-import cn.treedeep.link.util.HexUtil;
+import cn.treedeep.link.util.CRC16CCITT;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -14,6 +13,8 @@ import static cn.treedeep.link.protocol.v1.Protocol.START_FLAG;
  * Copyright © 深圳市树深计算机系统有限公司 版权所有
  *
  * <p>协议编码器（服务器下发）</p>
+ * <p>输出缓冲区按 {@link Pv1BaseFrame#encodedLength()} 一次分配，协议头、数据域、CRC和结束符直接写入其中，长度字段最后回填。</p>
+ * <p>需要查看原始帧时使用 {@link WireTrace}，不在日志中逐帧打印十六进制。</p>
  *
  * @author 周广明
  * @since 2025/3/29 15:21
@@ -21,56 +22,54 @@ import static cn.treedeep.link.protocol.v1.Protocol.START_FLAG;
 @Slf4j
 public abstract class Pv1FrameEncoder extends MessageToByteEncoder<Pv1BaseFrame> {
 
-    @Override
-    protected void encode(ChannelHandlerContext ctx, Pv1BaseFrame msg, ByteBuf out) {
-        // 1. 分配临时缓冲区（自动释放）
-        ByteBuf buffer = ctx.alloc().compositeBuffer();
-        try {
-            // 2. 构建协议头（起始符+版本+占位长度+指令）
-            writeHeader(buffer, msg);
+    // 线路抓包，可为null
+    private final WireTrace wireTrace;
+
+    protected Pv1FrameEncoder() {
+        this(null);
+    }
 
-            // 3. 写入数据域（设备ID、会话ID等基础字段+指令特定字段）
+    protected Pv1FrameEncoder(WireTrace wireTrace) {
+        this.wireTrace = wireTrace;
+    }
 
-            // 写入基础字段
-            buffer.writeInt(msg.getDeviceId()).writeShort(msg.getSessionId()).writeInt(msg.getTaskId());
-            writePayload(buffer, msg);
+    /**
+     * 按帧报告的编码长度分配输出缓冲区，编码时直接写入，不再经过临时缓冲区
+     */
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, Pv1BaseFrame msg, boolean preferDirect) {
+        int length = msg.encodedLength();
+        return preferDirect ? ctx.alloc().ioBuffer(length) : ctx.alloc().heapBuffer(length);
+    }
 
-            // 4. 回填总长度字段
-            updateTotalLength(buffer);
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Pv1BaseFrame msg, ByteBuf out) {
+        int start = out.writerIndex();
 
-            // 5. 计算并写入CRC
-            writeCRC(buffer);
+        // 1. 协议头（起始符+版本+占位长度+指令）
+        out.writeShort(START_FLAG)
+                .writeByte(msg.getVersion())
+                .writeShort(0) // 占位总长度字段
+                .writeByte(msg.getCommand());
 
-            // 6. 写入结束符
-            buffer.writeShort(END_FLAG);
+        // 2. 数据域（设备ID、会话ID等基础字段+指令特定字段）
+        out.writeInt(msg.getDeviceId()).writeShort(msg.getSessionId()).writeInt(msg.getTaskId());
+        writePayload(out, msg);
 
-            // 7. 输出日志和最终数据
-            log.debug("发送帧：{}", HexUtil.formatHexString(buffer));
-            out.writeBytes(buffer);
-        } finally {
-            buffer.release();
-        }
-    }
+        // 3. 回填总长度字段，+4=CRC(2)+结束符(2)
+        int totalLength = out.writerIndex() - start + 4;
+        out.setShort(start + 3, totalLength);
 
-    // 写入协议头（起始符+版本+占位长度+指令）
-    private void writeHeader(ByteBuf buf, Pv1BaseFrame msg) {
-        buf.writeShort(START_FLAG)
-                .writeByte(msg.getVersion())
-                .writeShort(0); // 占位总长度字段
-        buf.writeByte(msg.getCommand());
-    }
+        // 4. 计算并写入CRC（从起始符到数据域结束）
+        out.writeShort(CRC16CCITT.INSTANCE.calculate(out, start, out.writerIndex() - start));
 
-    // 回填总长度字段
-    private void updateTotalLength(ByteBuf buf) {
-        int totalLength = buf.readableBytes() + 4; // +4=CRC(2)+结束符(2)
-        buf.setShort(3, totalLength); // 在偏移量3处写入长度
-    }
+        // 5. 写入结束符
+        out.writeShort(END_FLAG);
 
-    // 计算并写入CRC（从起始符到数据域结束）
-    private void writeCRC(ByteBuf buf) {
-        ByteBuf crcRange = buf.duplicate().readerIndex(0);
-        long crc = CRC.calculateCRC(CRC.Parameters.CCITT, crcRange.nioBuffer());
-        buf.writeShort((short) crc);
+        // 6. 抓包
+        if (wireTrace != null && wireTrace.shouldTrace(msg.getDeviceId())) {
+            wireTrace.record(WireTrace.Direction.OUTBOUND, msg.getDeviceId(), msg.getCommand(), out, start, totalLength);
+        }
     }
 
     // 写入数据域内容
@@ -0,0 +1,123 @@
+package cn.treedeep.link.protocol.v1;
+
+import cn.treedeep.link.util.CRC16CCITT;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import static cn.treedeep.link.protocol.v1.Protocol.END_FLAG;
+import static cn.treedeep.link.protocol.v1.Protocol.START_FLAG;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>无扩展数据帧的编码模板</p>
+ * <p>
+ * 错误响应、服务端心跳、强制下线等帧没有扩展数据，编码结果只有设备ID、会话ID、任务ID三个字段不同：
+ * <ul>
+ *     <li>协议头（起始符、版本、长度、指令）固定，创建模板时编码一次</li>
+ *     <li>CRC按段累加，协议头之后的中间值预先算好，每次只需再处理10字节的基础字段</li>
+ * </ul>
+ * 编码结果直接是 {@link ByteBuf}，写出时不经过 {@link Pv1FrameEncoder}，
+ * 因此在管道中任何位置（包括编码器之前的解码器）都可以直接写出。模板不可变，可在线程间共享。
+ * <p>
+ * 编码器不会看到这些帧，需要线路抓包时由调用方传入 {@link WireTrace}，或对写出的帧调用 {@link #trace}。
+ *
+ * @author 周广明
+ * @since 2025/4/19 16:10
+ */
+public final class Pv1FrameTemplate {
+
+    // 协议头：起始符(2) + 版本(1) + 长度(2) + 指令(1)，拆成4字节和2字节两次写入
+    private final int headerHigh;
+    private final short headerLow;
+    // 处理完协议头后的CRC中间值
+    private final int headerCrc;
+    private final byte command;
+
+    private Pv1FrameTemplate(byte version, byte command) {
+        this.command = command;
+        byte[] header = {
+                (byte) (START_FLAG >>> 8), (byte) START_FLAG,
+                version,
+                (byte) (Pv1BaseFrame.FIXED_LENGTH >>> 8), (byte) Pv1BaseFrame.FIXED_LENGTH,
+                command
+        };
+        this.headerHigh = (header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | (header[3] & 0xFF);
+        this.headerLow = (short) ((header[4] & 0xFF) << 8 | (header[5] & 0xFF));
+        this.headerCrc = CRC16CCITT.INSTANCE.calculate(header);
+    }
+
+    /**
+     * 以帧的版本和指令创建模板
+     *
+     * @param frame 没有扩展数据的帧，只取版本和指令
+     * @throws IllegalArgumentException 帧带有扩展数据
+     */
+    public static Pv1FrameTemplate of(Pv1BaseFrame frame) {
+        if (frame.payloadLength() != 0) {
+            throw new IllegalArgumentException("帧带有扩展数据，不能使用模板编码: 0x" + Integer.toHexString(frame.getCommand() & 0xFF));
+        }
+        return new Pv1FrameTemplate(frame.getVersion(), frame.getCommand());
+    }
+
+    /**
+     * 分配缓冲区并编码一帧
+     *
+     * @param alloc     分配器，通常为 {@code channel.alloc()}
+     * @param deviceId  设备ID
+     * @param sessionId 会话ID
+     * @param taskId    任务ID
+     * @return 编码好的帧，由写出方负责释放
+     */
+    public ByteBuf encode(ByteBufAllocator alloc, int deviceId, short sessionId, int taskId) {
+        ByteBuf out = alloc.ioBuffer(Pv1BaseFrame.FIXED_LENGTH);
+        writeTo(out, deviceId, sessionId, taskId);
+        return out;
+    }
+
+    /**
+     * 分配缓冲区并编码一帧，该设备开启抓包时记录下来
+     *
+     * @param wireTrace 线路抓包，可为null
+     * @see #encode(ByteBufAllocator, int, short, int)
+     */
+    public ByteBuf encode(ByteBufAllocator alloc, int deviceId, short sessionId, int taskId, WireTrace wireTrace) {
+        ByteBuf out = encode(alloc, deviceId, sessionId, taskId);
+        trace(wireTrace, deviceId, out);
+        return out;
+    }
+
+    /**
+     * 将模板编码的帧记录到线路抓包，代替编码器完成出站记录
+     *
+     * @param wireTrace 线路抓包，可为null
+     * @param deviceId  记录在哪个设备名下
+     * @param frame     编码好的帧，不修改读写索引
+     */
+    public void trace(WireTrace wireTrace, int deviceId, ByteBuf frame) {
+        if (wireTrace != null && wireTrace.shouldTrace(deviceId)) {
+            wireTrace.record(WireTrace.Direction.OUTBOUND, deviceId, command, frame, frame.readerIndex(), frame.readableBytes());
+        }
+    }
+
+    /**
+     * 将一帧写入缓冲区
+     */
+    public void writeTo(ByteBuf out, int deviceId, short sessionId, int taskId) {
+        int fieldsIndex = out.writerIndex() + 6;
+        out.writeInt(headerHigh)
+                .writeShort(headerLow)
+                .writeInt(deviceId)
+                .writeShort(sessionId)
+                .writeInt(taskId);
+        out.writeShort(CRC16CCITT.INSTANCE.update(headerCrc, out, fieldsIndex, 10));
+        out.writeShort(END_FLAG);
+    }
+
+    /**
+     * 模板对应的指令
+     */
+    public byte getCommand() {
+        return command;
+    }
+}
@@ -0,0 +1,21 @@
+package cn.treedeep.link.protocol.v1;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>可回收的协议帧</p>
+ * <p>
+ * 高频上报帧（心跳、文件帧）开启回收时由对象池创建，处理方在处理结束后调用 {@link #recycle()} 归还。
+ * 归还后对象会被清空并交给下一次解码使用，处理方不能再持有或访问它；需要保留的字段应在处理过程中复制出来。
+ * 不是从对象池创建的帧调用 {@link #recycle()} 不做任何事，处理方可以无条件调用。
+ *
+ * @author 周广明
+ * @since 2025/4/19 20:40
+ */
+public interface RecyclableFrame {
+
+    /**
+     * 清空并归还到对象池，每个帧对象只能调用一次
+     */
+    void recycle();
+}
@@ -0,0 +1,195 @@
+package cn.treedeep.link.protocol.v1;
+
+import cn.treedeep.link.util.HexUtil;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>线路抓包</p>
+ * <p>
+ * 在编解码器上记录收发的原始帧，代替在DEBUG日志里逐帧打印十六进制：
+ * <ul>
+ *     <li>按设备开关：开启的设备每一帧都记录</li>
+ *     <li>采样：其余设备每N帧随机记录一帧，0表示不采样</li>
+ *     <li>记录保存在固定容量的环形缓冲区中，写满后覆盖最早的记录，每帧最多保存 {@code maxFrameBytes} 字节</li>
+ * </ul>
+ * 两者都未开启时 {@link #shouldTrace(int)} 只读一个volatile字段，编解码器的热路径上没有额外开销。
+ * 记录的帧同时以DEBUG级别输出到本类的日志。
+ * 由 {@link Pv1FrameTemplate} 编码、不经过编码器的出站帧（服务端心跳、错误响应）由写出方调用模板记录。
+ *
+ * @author 周广明
+ * @since 2025/4/19 10:30
+ */
+@Slf4j
+public class WireTrace {
+
+    /**
+     * 方向
+     */
+    public enum Direction {
+        INBOUND, OUTBOUND
+    }
+
+    private final AtomicReferenceArray<Entry> ring;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int maxFrameBytes;
+    private final Set<Integer> devices = ConcurrentHashMap.newKeySet();
+
+    private volatile int sampleRate;
+    // 采样或按设备开关任一开启
+    private volatile boolean active;
+
+    /**
+     * @param capacity      环形缓冲区容量（帧数）
+     * @param maxFrameBytes 每帧最多保存的字节数
+     * @param sampleRate    采样率，每N帧记录一帧，小于等于0表示不采样
+     */
+    public WireTrace(int capacity, int maxFrameBytes, int sampleRate) {
+        this.ring = new AtomicReferenceArray<>(Math.max(1, capacity));
+        this.maxFrameBytes = Math.max(0, maxFrameBytes);
+        setSampleRate(sampleRate);
+    }
+
+    /**
+     * 是否记录该设备的帧
+     */
+    public boolean shouldTrace(int deviceId) {
+        if (!active) {
+            return false;
+        }
+        if (!devices.isEmpty() && devices.contains(deviceId)) {
+            return true;
+        }
+        int rate = sampleRate;
+        return rate > 0 && (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    /**
+     * 记录一帧，调用前应先用 {@link #shouldTrace(int)} 判断
+     *
+     * @param direction 方向
+     * @param deviceId  设备ID
+     * @param command   指令
+     * @param frame     缓冲区
+     * @param index     帧的起始位置
+     * @param length    帧长度
+     */
+    public void record(Direction direction, int deviceId, byte command, ByteBuf frame, int index, int length) {
+        byte[] raw = new byte[Math.min(length, maxFrameBytes)];
+        frame.getBytes(index, raw);
+
+        long seq = sequence.getAndIncrement();
+        Entry entry = new Entry(seq, System.currentTimeMillis(), direction, deviceId, command, length, raw);
+        ring.set((int) (seq % ring.length()), entry);
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} 设备【{}】cmd=0x{}, length={}: {}", direction, deviceId,
+                    Integer.toHexString(command & 0xFF), length, HexUtil.formatHexString(raw));
+        }
+    }
+
+    /**
+     * 环形缓冲区中的记录，按时间先后排列
+     */
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            Entry entry = ring.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry::seq));
+        return entries;
+    }
+
+    /**
+     * 清空记录
+     */
+    public void clear() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+    /**
+     * 开启或关闭某个设备的抓包
+     */
+    public void setDeviceEnabled(int deviceId, boolean enabled) {
+        if (enabled) {
+            devices.add(deviceId);
+        } else {
+            devices.remove(deviceId);
+        }
+        updateActive();
+    }
+
+    /**
+     * 开启了抓包的设备
+     */
+    public Set<Integer> getDevices() {
+        return Set.copyOf(devices);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 设置采样率，每N帧记录一帧，小于等于0表示不采样
+     */
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(0, sampleRate);
+        updateActive();
+    }
+
+    public int getCapacity() {
+        return ring.length();
+    }
+
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    private void updateActive() {
+        active = sampleRate > 0 || !devices.isEmpty();
+    }
+
+    /**
+     * 一条记录
+     *
+     * @param seq         序号
+     * @param epochMillis 记录时间
+     * @param direction   方向
+     * @param deviceId    设备ID
+     * @param command     指令
+     * @param length      帧的实际长度
+     * @param raw         帧的原始数据，超过 {@code maxFrameBytes} 时被截断
+     */
+    public record Entry(long seq, long epochMillis, Direction direction, int deviceId, byte command, int length,
+                        byte[] raw) {
+
+        public Instant getTime() {
+            return Instant.ofEpochMilli(epochMillis);
+        }
+
+        /**
+         * 原始数据的十六进制表示
+         */
+        public String getHex() {
+            return HexUtil.formatHexString(raw);
+        }
+    }
+}
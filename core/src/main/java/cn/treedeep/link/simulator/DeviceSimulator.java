@@ -34,6 +34,8 @@ public abstract class DeviceSimulator {
     protected final Class<? extends ServerChannel> channelClass;
     protected ScheduledFuture<?> heartbeatFuture;
     protected SimulatorStatus status = SimulatorStatus.CREATED;
+    // 文件上传窗口：未确认的在途帧数上限，1表示逐帧等待确认
+    protected int uploadWindow = 1;
 
     public DeviceSimulator(int deviceId) {
         this.deviceId = deviceId;
@@ -2,19 +2,63 @@ package cn.treedeep.link.task;
 
 import cn.treedeep.link.netty.ChannelManager;
 import cn.treedeep.link.netty.ServerHeartbeat;
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import cn.treedeep.link.protocol.v1.Pv1FrameTemplate;
+import cn.treedeep.link.protocol.v1.WireTrace;
+import io.netty.channel.Channel;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 服务端心跳广播
+ * <p>
+ * 心跳帧没有扩展数据时使用 {@link Pv1FrameTemplate}：协议头和其CRC中间值只算一次，
+ * 每个连接只需写入设备ID等基础字段并补算10字节的CRC，不再逐连接经过编码器。
+ * 开启了抓包的设备，心跳帧由模板代替编码器记录到 {@link WireTrace}。
+ */
 @Slf4j
 public class HeartbeatTask {
 
     private final ChannelManager channelManager;
+    // 线路抓包，可为null
+    private final WireTrace wireTrace;
+
+    // 心跳帧的编码模板，心跳不是无扩展数据的协议帧时为null
+    private Pv1FrameTemplate template;
+    private ServerHeartbeat templateSource;
 
     public HeartbeatTask(ChannelManager channelManager) {
+        this(channelManager, null);
+    }
+
+    public HeartbeatTask(ChannelManager channelManager, WireTrace wireTrace) {
         this.channelManager = channelManager;
+        this.wireTrace = wireTrace;
     }
 
     public void scheduleHeartbeatInterval(ServerHeartbeat heartbeat) {
-        channelManager.getDeviceChannels().values().forEach(channel -> channel.writeAndFlush(heartbeat));
+        if (!(heartbeat instanceof Pv1BaseFrame frame) || frame.payloadLength() != 0) {
+            channelManager.getDeviceChannels().values().forEach(channel -> channel.writeAndFlush(heartbeat));
+            return;
+        }
+
+        if (templateSource != heartbeat) {
+            template = Pv1FrameTemplate.of(frame);
+            templateSource = heartbeat;
+        }
+
+        short sessionId = frame.getSessionId();
+        int taskId = frame.getTaskId();
+        // 在连接快照上编码和写出，不在映射表的段读锁内做这些操作，避免阻塞同一段上的上线和下线
+        for (Channel channel : channelManager.getDeviceChannels().values()) {
+            broadcast(channel, sessionId, taskId);
+        }
+    }
+
+    private void broadcast(Channel channel, short sessionId, int taskId) {
+        Integer deviceId = channel.attr(ChannelManager.DEVICE_ID).get();
+        if (deviceId != null && channel.isActive()) {
+            channel.writeAndFlush(template.encode(channel.alloc(), deviceId, sessionId, taskId, wireTrace));
+        }
     }
 
 }
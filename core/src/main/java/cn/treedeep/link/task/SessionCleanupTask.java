@@ -6,72 +6,134 @@ import cn.treedeep.link.event.DeviceEvent;
 import cn.treedeep.link.event.DeviceEventPublisher;
 import cn.treedeep.link.netty.ChannelManager;
 import cn.treedeep.link.netty.DeviceSession;
+import cn.treedeep.link.netty.FileUploadManager;
 import cn.treedeep.link.netty.SessionManager;
 import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 会话清理任务
- * 定期检查并清理过期的设备会话
+ * <p>
+ * 基于时间轮（{@link HashedWheelTimer}，1秒一格）为每个会话挂一个超时，不再定期扫描全部会话：
+ * <ul>
+ *     <li>创建会话时按会话超时时间挂上超时</li>
+ *     <li>心跳只更新最后活动时间，不操作时间轮</li>
+ *     <li>超时到期时检查最后活动时间：确已过期则清理，否则按剩余时间重新挂上（惰性续期）</li>
+ * </ul>
+ * 每个会话在一个超时周期内最多触发一次检查，清理的开销只与到期的会话数有关，精度为秒级。
  */
 @Slf4j
-public class SessionCleanupTask {
+public class SessionCleanupTask implements SessionManager.SessionListener {
 
     private final LinkConfig config;
     private final SessionManager sessionManager;
     private final ChannelManager channelManager;
     private final DeviceEventPublisher eventPublisher;
+    private final FileUploadManager fileUploadManager;
+
+    private final Timer timer;
+    private final long timeoutNanos;
 
     public SessionCleanupTask(LinkConfig config,
                               SessionManager sessionManager,
                               ChannelManager channelManager,
-                              DeviceEventPublisher eventPublisher) {
+                              DeviceEventPublisher eventPublisher,
+                              FileUploadManager fileUploadManager) {
         this.config = config;
         this.sessionManager = sessionManager;
         this.channelManager = channelManager;
         this.eventPublisher = eventPublisher;
+        this.fileUploadManager = fileUploadManager;
+        this.timeoutNanos = TimeUnit.MINUTES.toNanos(config.getSessionTimeoutMinutes());
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("session-expiry", true), 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 开始跟踪会话：注册监听新会话，并为已存在的会话挂上超时
+     */
+    public void start() {
+        sessionManager.addSessionListener(this);
+        for (DeviceSession session : sessionManager.getAllSessions()) {
+            schedule(session, timeoutNanos);
+        }
+        log.info("会话过期检查已启动，超时时间：{} 分钟", config.getSessionTimeoutMinutes());
+    }
+
+    /**
+     * 停止时间轮
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void onSessionCreated(DeviceSession session) {
+        schedule(session, timeoutNanos);
+    }
+
+    private void schedule(DeviceSession session, long delayNanos) {
+        timer.newTimeout(timeout -> checkExpired(session), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // 超时到期：会话已被替换或移除则直接丢弃，仍然活跃则按剩余时间续期
+    private void checkExpired(DeviceSession session) {
+        int deviceId = session.getDeviceId();
+        if (sessionManager.getSession(deviceId) != session) {
+            return;
+        }
+
+        long remainingNanos = remainingNanos(session);
+        if (remainingNanos > 0 && session.getStatus() != DeviceSession.SessionStatus.CLOSED) {
+            schedule(session, remainingNanos);
+            return;
+        }
+
+        expire(session);
     }
 
-    public void cleanupExpiredSessions() {
-        log.info("开始清理过期会话...");
-        List<DeviceSession> sessions = sessionManager.getAllSessions();
-        int expiredCount = 0;
-
-        for (DeviceSession session : sessions) {
-            if (session.isExpired(config.getSessionTimeoutMinutes())) {
-                int deviceId = session.getDeviceId();
-                log.info("会话过期，设备ID: {}, 最后活动时间: {}", deviceId, session.getLastActiveTime());
-
-                // 关闭通道
-                Channel channel = channelManager.getChannel(deviceId);
-                if (channel != null && channel.isActive()) {
-                    channel.close();
-                }
-
-                // 移除会话
-                sessionManager.removeSession(deviceId);
-                channelManager.removeChannel(deviceId);
-
-                // 发布会话过期事件
-                Map<String, Object> eventData = new HashMap<>();
-                eventData.put("reason", "SESSION_TIMEOUT");
-                eventData.put("lastActiveTime", session.getLastActiveTime().toString());
-
-                DeviceEvent event = new DefaultDeviceEvent(
-                        "SESSION_EXPIRED",
-                        deviceId,
-                        eventData
-                );
-                eventPublisher.publishEvent(event);
-
-                expiredCount++;
+    private long remainingNanos(DeviceSession session) {
+        return timeoutNanos - session.idleNanos(System.nanoTime());
+    }
+
+    private void expire(DeviceSession session) {
+        int deviceId = session.getDeviceId();
+
+        // 移除会话，期间设备重连产生了新会话则不处理
+        if (!sessionManager.removeSession(deviceId, session)) {
+            return;
+        }
+        log.info("会话过期，设备ID: {}, 最后活动时间: {}", deviceId, session.getLastActiveTime());
+
+        // 关闭通道：通道已从管理器中移除，断开时不会再清理该设备的上传
+        Channel channel = channelManager.getChannel(deviceId);
+        if (channel != null) {
+            channelManager.removeChannel(channel);
+            if (channel.isActive()) {
+                channel.close();
             }
+            // 在通道的EventLoop上放弃未完成的上传，排在关闭之后，不会与正在缓存的帧交错
+            channel.eventLoop().execute(() -> fileUploadManager.abortUploads(deviceId));
+        } else {
+            fileUploadManager.abortUploads(deviceId);
         }
 
-        log.info("会话清理完成，共清理 {} 个过期会话", expiredCount);
+        // 发布会话过期事件
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put("reason", "SESSION_TIMEOUT");
+        eventData.put("lastActiveTime", session.getLastActiveTime().toString());
+
+        DeviceEvent event = new DefaultDeviceEvent(
+                "SESSION_EXPIRED",
+                deviceId,
+                eventData
+        );
+        eventPublisher.publishEvent(event);
     }
-}
\ No newline at end of file
+}
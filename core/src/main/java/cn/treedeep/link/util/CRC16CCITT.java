@@ -0,0 +1,296 @@
+package cn.treedeep.link.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.util.ByteProcessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>CRC-16/CCITT 查表计算引擎（协议帧校验专用）</p>
+ * <p>
+ * 参数与 {@link CRC.Parameters#CCITT} 完全一致：多项式0x1021，初值0xFFFF，输入输出不反转，结果不异或。
+ * 采用 slicing-by-8 查表算法，每次处理8个字节，计算结果与 {@link CRC#calculateCRC(CRC.Parameters, byte[])} 逐位一致。
+ * <p>
+ * 查表数据在类加载时一次性生成，之后只读，实例无状态，可在多个线程间共享，统一使用 {@link #INSTANCE}。
+ * 对ByteBuf的计算不会调用nioBuffer()：堆内存直接访问数组，CompositeByteBuf逐个组件计算，
+ * 其余缓冲区按8字节直接读取，任何内存布局下都不会产生合并拷贝。
+ * 中间值由调用方保存，支持分段计算：
+ * <pre>
+ * {@code
+ * int crc = CRC16CCITT.INSTANCE.init();
+ * crc = CRC16CCITT.INSTANCE.update(crc, header, 0, header.length);
+ * crc = CRC16CCITT.INSTANCE.update(crc, payloadBuf, payloadBuf.readerIndex(), payloadBuf.readableBytes());
+ * }
+ * </pre>
+ *
+ * @author 周广明
+ * @since 2025/4/12 10:20
+ */
+public final class CRC16CCITT {
+
+    /**
+     * 共享实例
+     */
+    public static final CRC16CCITT INSTANCE = new CRC16CCITT();
+
+    private static final int POLYNOMIAL = 0x1021;
+    private static final int INIT_VALUE = 0xFFFF;
+
+    // T0[b]：寄存器为0时处理字节b后的值（即普通查表法的表）
+    // Tk[b]：字节b之后再跟k个0字节时，对最终寄存器的贡献
+    private final int[] t0 = new int[256];
+    private final int[] t1 = new int[256];
+    private final int[] t2 = new int[256];
+    private final int[] t3 = new int[256];
+    private final int[] t4 = new int[256];
+    private final int[] t5 = new int[256];
+    private final int[] t6 = new int[256];
+    private final int[] t7 = new int[256];
+
+    private CRC16CCITT() {
+        for (int b = 0; b < 256; b++) {
+            int crc = b << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+            }
+            t0[b] = crc & 0xFFFF;
+        }
+
+        int[][] tables = {t0, t1, t2, t3, t4, t5, t6, t7};
+        for (int k = 1; k < tables.length; k++) {
+            int[] prev = tables[k - 1];
+            int[] cur = tables[k];
+            for (int b = 0; b < 256; b++) {
+                int v = prev[b];
+                cur[b] = ((v << 8) ^ t0[(v >>> 8) & 0xFF]) & 0xFFFF;
+            }
+        }
+    }
+
+    /**
+     * 获取初始中间值
+     *
+     * @return 初始中间值
+     */
+    public int init() {
+        return INIT_VALUE;
+    }
+
+    /**
+     * 分段计算：处理字节数组的一部分
+     *
+     * @param crc    当前中间值
+     * @param data   数据
+     * @param offset 起始偏移
+     * @param length 处理长度
+     * @return 更新后的中间值（该算法无最终异或，中间值即CRC值）
+     */
+    public int update(int crc, byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+
+        while (end - i >= 8) {
+            crc = t7[((crc >>> 8) ^ data[i]) & 0xFF]
+                    ^ t6[(crc ^ data[i + 1]) & 0xFF]
+                    ^ t5[data[i + 2] & 0xFF]
+                    ^ t4[data[i + 3] & 0xFF]
+                    ^ t3[data[i + 4] & 0xFF]
+                    ^ t2[data[i + 5] & 0xFF]
+                    ^ t1[data[i + 6] & 0xFF]
+                    ^ t0[data[i + 7] & 0xFF];
+            i += 8;
+        }
+
+        while (i < end) {
+            crc = ((crc << 8) ^ t0[((crc >>> 8) ^ data[i++]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * 分段计算：直接在ByteBuf上处理指定区间，不修改读写索引，也不会调用nioBuffer()产生拷贝
+     *
+     * @param crc    当前中间值
+     * @param buf    数据
+     * @param index  起始绝对索引
+     * @param length 处理长度
+     * @return 更新后的中间值
+     */
+    public int update(int crc, ByteBuf buf, int index, int length) {
+        if (length == 0) {
+            return crc;
+        }
+        if (buf.hasArray()) {
+            return update(crc, buf.array(), buf.arrayOffset() + index, length);
+        }
+        if (buf instanceof CompositeByteBuf composite) {
+            return updateComposite(crc, composite, index, length);
+        }
+        if (buf.nioBufferCount() > 1) {
+            // 由多段内存组成但不是CompositeByteBuf（如CompositeByteBuf的切片），交给forEachByte按组件遍历
+            Accumulator accumulator = new Accumulator(crc);
+            buf.forEachByte(index, length, accumulator);
+            return accumulator.getValue();
+        }
+
+        int i = index;
+        int end = index + length;
+
+        // 每次按大端读取8个字节
+        while (end - i >= 8) {
+            crc = update8(crc, buf.getLong(i));
+            i += 8;
+        }
+
+        while (i < end) {
+            crc = ((crc << 8) ^ t0[((crc >>> 8) ^ buf.getByte(i++)) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * 分段计算：处理ByteBuffer从position到limit的部分，不修改position
+     * <p>
+     * 可配合 {@link ByteBuf#nioBuffers(int, int)} 逐段累加。
+     *
+     * @param crc 当前中间值
+     * @param buf 数据
+     * @return 更新后的中间值
+     */
+    public int update(int crc, ByteBuffer buf) {
+        int i = buf.position();
+        int end = buf.limit();
+        if (buf.hasArray()) {
+            return update(crc, buf.array(), buf.arrayOffset() + i, end - i);
+        }
+
+        boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+        while (end - i >= 8) {
+            long v = buf.getLong(i);
+            crc = update8(crc, bigEndian ? v : Long.reverseBytes(v));
+            i += 8;
+        }
+
+        while (i < end) {
+            crc = ((crc << 8) ^ t0[((crc >>> 8) ^ buf.get(i++)) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * 创建逐字节累加器，用于 {@link ByteBuf#forEachByte(ByteProcessor)} 等边遍历边计算的场景
+     *
+     * @return 初始值为 {@link #init()} 的累加器
+     */
+    public Accumulator newAccumulator() {
+        return new Accumulator(INIT_VALUE);
+    }
+
+    /**
+     * 计算整个字节数组的CRC
+     *
+     * @param data 数据
+     * @return CRC值
+     */
+    public int calculate(byte[] data) {
+        return update(INIT_VALUE, data, 0, data.length);
+    }
+
+    /**
+     * 计算字节数组一部分的CRC
+     *
+     * @param data   数据
+     * @param offset 起始偏移
+     * @param length 处理长度
+     * @return CRC值
+     */
+    public int calculate(byte[] data, int offset, int length) {
+        return update(INIT_VALUE, data, offset, length);
+    }
+
+    /**
+     * 计算ByteBuf可读区间的CRC，不修改读写索引
+     *
+     * @param buf 数据
+     * @return CRC值
+     */
+    public int calculate(ByteBuf buf) {
+        return update(INIT_VALUE, buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    /**
+     * 计算ByteBuf指定区间的CRC，不修改读写索引
+     *
+     * @param buf    数据
+     * @param index  起始绝对索引
+     * @param length 处理长度
+     * @return CRC值
+     */
+    public int calculate(ByteBuf buf, int index, int length) {
+        return update(INIT_VALUE, buf, index, length);
+    }
+
+    // 逐个组件计算，组件本身再按堆/直接内存选择最快的方式
+    private int updateComposite(int crc, CompositeByteBuf buf, int index, int length) {
+        int end = index + length;
+        int cIndex = buf.toComponentIndex(index);
+        while (index < end) {
+            int cStart = buf.toByteIndex(cIndex);
+            ByteBuf component = buf.internalComponent(cIndex);
+            int cLength = Math.min(end, cStart + component.readableBytes()) - index;
+            crc = update(crc, component, component.readerIndex() + index - cStart, cLength);
+            index += cLength;
+            cIndex++;
+        }
+        return crc;
+    }
+
+    // 处理大端排列的8个字节
+    private int update8(int crc, long v) {
+        return t7[((crc >>> 8) ^ (int) (v >>> 56)) & 0xFF]
+                ^ t6[(crc ^ (int) (v >>> 48)) & 0xFF]
+                ^ t5[(int) (v >>> 40) & 0xFF]
+                ^ t4[(int) (v >>> 32) & 0xFF]
+                ^ t3[(int) (v >>> 24) & 0xFF]
+                ^ t2[(int) (v >>> 16) & 0xFF]
+                ^ t1[(int) (v >>> 8) & 0xFF]
+                ^ t0[(int) v & 0xFF];
+    }
+
+    /**
+     * 逐字节CRC累加器
+     * <p>
+     * 非线程安全，每次计算使用独立实例，或调用 {@link #reset()} 后复用。
+     */
+    public final class Accumulator implements ByteProcessor {
+        private int crc;
+
+        private Accumulator(int crc) {
+            this.crc = crc;
+        }
+
+        @Override
+        public boolean process(byte value) {
+            crc = ((crc << 8) ^ t0[((crc >>> 8) ^ value) & 0xFF]) & 0xFFFF;
+            return true;
+        }
+
+        /**
+         * 重置为初始值
+         */
+        public void reset() {
+            crc = INIT_VALUE;
+        }
+
+        /**
+         * 当前CRC值
+         */
+        public int getValue() {
+            return crc;
+        }
+    }
+}
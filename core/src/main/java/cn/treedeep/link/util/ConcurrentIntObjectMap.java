@@ -0,0 +1,415 @@
+package cn.treedeep.link.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>以int为键的并发Map（设备ID → 会话/连接 等注册表专用）</p>
+ * <p>
+ * 与 {@code ConcurrentHashMap<Integer, V>} 相比：
+ * <ul>
+ *     <li>键以int原样存放，查找、写入都不装箱，心跳等高频查找路径上没有对象分配</li>
+ *     <li>开放寻址（线性探测）存放在两个平行数组中，每个条目只占一个int和一个引用，没有Node和Integer对象</li>
+ * </ul>
+ * 实现上按键的哈希高位分成若干段，每段是一个 {@link StampedLock} 保护的线性探测表：
+ * 读操作先乐观读，校验失败（期间有写入）再退回读锁；写操作持有该段的写锁，
+ * 删除使用后移删除（backward-shift），不留墓碑，表不会因为反复上下线而退化。
+ * <p>
+ * 值不能为null；遍历类方法（{@link #values()}、{@link #forEach(IntObjectConsumer)}）逐段加读锁，
+ * 各段之间不是同一时刻的快照，与ConcurrentHashMap的弱一致遍历语义相同。
+ *
+ * @param <V> 值类型
+ * @author 周广明
+ * @since 2025/4/13 15:10
+ */
+public final class ConcurrentIntObjectMap<V> {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 8;
+    // 每段最大装载率 3/4
+    private static final int LOAD_FACTOR_NUMERATOR = 3;
+    private static final int LOAD_FACTOR_DENOMINATOR = 4;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentIntObjectMap() {
+        this(DEFAULT_SEGMENTS * MIN_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity 预计的条目数，按装载率换算后平均分配到各段
+     */
+    public ConcurrentIntObjectMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param initialCapacity 预计的条目数
+     * @param concurrency     段数（写入并发度），向上取整为2的幂
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntObjectMap(int initialCapacity, int concurrency) {
+        int segmentCount = tableSizeFor(Math.max(1, concurrency));
+        int perSegment = (int) ((long) Math.max(0, initialCapacity) * LOAD_FACTOR_DENOMINATOR
+                / LOAD_FACTOR_NUMERATOR / segmentCount) + 1;
+        int segmentCapacity = tableSizeFor(Math.max(MIN_SEGMENT_CAPACITY, perSegment));
+
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+        // 段数为1时位移32位在Java中等于不移位，单独处理
+        this.segmentShift = segmentCount == 1 ? -1 : 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 值，不存在时返回null
+     */
+    public V get(int key) {
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        long stamp = segment.tryOptimisticRead();
+        V value = segment.find(key, hash);
+        if (segment.validate(stamp)) {
+            return value;
+        }
+
+        stamp = segment.readLock();
+        try {
+            return segment.find(key, hash);
+        } finally {
+            segment.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 是否包含键
+     */
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * 写入键值
+     *
+     * @param key   键
+     * @param value 值，不能为null
+     * @return 旧值，不存在时返回null
+     */
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "value");
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.put(key, hash, value, false);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 键不存在时写入
+     *
+     * @param key   键
+     * @param value 值，不能为null
+     * @return 已存在的值，写入成功时返回null
+     */
+    public V putIfAbsent(int key, V value) {
+        Objects.requireNonNull(value, "value");
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.put(key, hash, value, true);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 被删除的值，不存在时返回null
+     */
+    public V remove(int key) {
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.remove(key, hash, null);
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 仅当键当前对应的值是 {@code value}（同一对象）时删除
+     *
+     * @param key   键
+     * @param value 期望的值
+     * @return 是否删除
+     */
+    public boolean remove(int key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        int hash = hash(key);
+        Segment<V> segment = segmentFor(hash);
+
+        long stamp = segment.writeLock();
+        try {
+            return segment.remove(key, hash, value) != null;
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 条目数，并发修改时是近似值
+     */
+    public int size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 所有值的快照
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+
+    /**
+     * 遍历所有条目，回调在段的读锁内执行，不能在回调中修改本Map
+     */
+    public void forEach(IntObjectConsumer<? super V> action) {
+        for (Segment<V> segment : segments) {
+            long stamp = segment.readLock();
+            try {
+                segment.forEach(action);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            long stamp = segment.writeLock();
+            try {
+                segment.clear();
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segmentShift < 0 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    // murmur3 fmix32：高位选段，低位选槽，连续的设备ID也能均匀分布
+    private static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * 遍历回调
+     */
+    @FunctionalInterface
+    public interface IntObjectConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * 一个线性探测表，键和值存放在平行数组中，槽位的值为null表示空槽
+     */
+    private static final class Table {
+        final int[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new int[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment<V> extends StampedLock {
+        // 写锁内替换，乐观读时只读取一次到局部变量，保证keys/values/mask来自同一个表
+        Table table;
+        int size;
+        int threshold;
+
+        Segment(int capacity) {
+            setTable(new Table(capacity));
+        }
+
+        private void setTable(Table table) {
+            this.table = table;
+            this.threshold = table.keys.length / LOAD_FACTOR_DENOMINATOR * LOAD_FACTOR_NUMERATOR;
+        }
+
+        // 乐观读时数据可能正在被修改，这里只保证不越界、不死循环，结果由调用方校验
+        @SuppressWarnings("unchecked")
+        V find(int key, int hash) {
+            Table t = table;
+            int mask = t.mask;
+            int i = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = t.values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (t.keys[i] == key) {
+                    return (V) value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(int key, int hash, V value, boolean onlyIfAbsent) {
+            Table t = table;
+            int mask = t.mask;
+            int i = hash & mask;
+            Object current;
+            while ((current = t.values[i]) != null) {
+                if (t.keys[i] == key) {
+                    if (!onlyIfAbsent) {
+                        t.values[i] = value;
+                    }
+                    return (V) current;
+                }
+                i = (i + 1) & mask;
+            }
+
+            t.keys[i] = key;
+            t.values[i] = value;
+            if (++size > threshold) {
+                resize();
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(int key, int hash, Object expected) {
+            Table t = table;
+            int mask = t.mask;
+            int i = hash & mask;
+            Object current;
+            while ((current = t.values[i]) != null) {
+                if (t.keys[i] == key) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            if (current == null || (expected != null && current != expected)) {
+                return null;
+            }
+
+            // 后移删除：把探测链上后面的条目前移填补空位，保证查找在第一个空槽处即可停止
+            int hole = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                Object next = t.values[j];
+                if (next == null) {
+                    break;
+                }
+                int home = hash(t.keys[j]) & mask;
+                // home 不在 (hole, j] 区间内时，条目可以移动到 hole
+                boolean inRange = hole <= j ? (home > hole && home <= j) : (home > hole || home <= j);
+                if (!inRange) {
+                    t.keys[hole] = t.keys[j];
+                    t.values[hole] = next;
+                    hole = j;
+                }
+            }
+            t.values[hole] = null;
+            t.keys[hole] = 0;
+            size--;
+            return (V) current;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(IntObjectConsumer<? super V> action) {
+            Table t = table;
+            for (int i = 0; i < t.values.length; i++) {
+                Object value = t.values[i];
+                if (value != null) {
+                    action.accept(t.keys[i], (V) value);
+                }
+            }
+        }
+
+        void clear() {
+            setTable(new Table(MIN_SEGMENT_CAPACITY));
+            size = 0;
+        }
+
+        // 扩容时在新表中构建好再整体替换，乐观读者要么看到旧表，要么看到完整的新表
+        private void resize() {
+            Table old = table;
+            Table t = new Table(old.keys.length << 1);
+            int mask = t.mask;
+            for (int j = 0; j < old.values.length; j++) {
+                Object value = old.values[j];
+                if (value == null) {
+                    continue;
+                }
+                int key = old.keys[j];
+                int i = hash(key) & mask;
+                while (t.values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                t.keys[i] = key;
+                t.values[i] = value;
+            }
+            setTable(t);
+        }
+    }
+}
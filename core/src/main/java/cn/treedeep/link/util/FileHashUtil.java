@@ -1,9 +1,11 @@
 package cn.treedeep.link.util;
 
+import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -35,6 +37,43 @@ public class FileHashUtil {
         return digest.digest();
     }
 
+    /**
+     * 创建摘要实例，用于边写入边计算的场景
+     *
+     * @param algorithm 哈希算法枚举
+     * @return 摘要实例
+     * @throws IllegalStateException 如果算法不可用（标准算法在所有JDK中都必须提供）
+     */
+    public static MessageDigest newDigest(HashAlgorithm algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm.getAlgorithmName());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 将ByteBuf的可读数据累加到摘要中，不修改ByteBuf的读索引
+     * <p>
+     * 按组件取nioBuffers逐段累加，CompositeByteBuf也不会产生合并拷贝。
+     *
+     * @param digest 摘要实例
+     * @param buf    数据
+     */
+    public static void update(MessageDigest digest, ByteBuf buf) {
+        int readable = buf.readableBytes();
+        if (readable == 0) {
+            return;
+        }
+        if (buf.hasArray()) {
+            digest.update(buf.array(), buf.arrayOffset() + buf.readerIndex(), readable);
+            return;
+        }
+        for (ByteBuffer buffer : buf.nioBuffers(buf.readerIndex(), readable)) {
+            digest.update(buffer);
+        }
+    }
+
     public static String calculateFileHashStr(String filePath, HashAlgorithm algorithm) throws IOException, NoSuchAlgorithmException {
         return HexUtil.bytesToHex(calculateFileHash(filePath, algorithm));
     }
@@ -4,53 +4,125 @@ import io.netty.buffer.ByteBuf;
 
 import java.nio.ByteBuffer;
 
+/**
+ * 十六进制格式化工具
+ * <p>
+ * 查表编码：每个字节直接查出两个字符写入预先分配好大小的字符数组，不使用 String.format。
+ */
 public class HexUtil {
 
+    private static final char[] LOWER_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // 每个字节对应的两个字符，高位在前
+    private static final char[] LOWER_TABLE = newTable(LOWER_DIGITS);
+    private static final char[] UPPER_TABLE = newTable(UPPER_DIGITS);
+
+    private static char[] newTable(char[] digits) {
+        char[] table = new char[512];
+        for (int b = 0; b < 256; b++) {
+            table[b << 1] = digits[b >>> 4];
+            table[(b << 1) + 1] = digits[b & 0x0F];
+        }
+        return table;
+    }
+
     /**
      * 将字节数组转换为十六进制字符串
      *
      * @param bytes 字节数组
-     * @return 十六进制字符串
+     * @return 十六进制字符串（小写，无分隔符）
      */
     public static String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+        char[] chars = new char[bytes.length << 1];
+        for (int i = 0; i < bytes.length; i++) {
+            int index = (bytes[i] & 0xFF) << 1;
+            chars[i << 1] = LOWER_TABLE[index];
+            chars[(i << 1) + 1] = LOWER_TABLE[index + 1];
         }
-        return hexString.toString();
+        return new String(chars);
     }
 
+    /**
+     * 将ByteBuf的可读数据格式化为以空格分隔的大写十六进制字符串，不修改读索引
+     */
     public static String formatHexString(ByteBuf buf) {
         if (buf == null) {
             return "";
         }
-        StringBuilder sb = new StringBuilder();
+        return formatHexString(buf, buf.readableBytes());
+    }
+
+    /**
+     * 将ByteBuf的可读数据格式化为以空格分隔的大写十六进制字符串，不修改读索引
+     *
+     * @param buf      缓冲区
+     * @param maxBytes 最多格式化的字节数，超出部分以 "..." 表示
+     */
+    public static String formatHexString(ByteBuf buf, int maxBytes) {
+        if (buf == null) {
+            return "";
+        }
         int readerIndex = buf.readerIndex();
-        for (int i = 0; i < buf.readableBytes(); i++) {
-            if (i > 0) {
-                sb.append(" ");
-            }
-            sb.append(String.format("%02X", buf.getByte(readerIndex + i)));
+        int length = Math.min(buf.readableBytes(), Math.max(0, maxBytes));
+        boolean truncated = length < buf.readableBytes();
+        char[] chars = newFormatBuffer(length, truncated);
+        for (int i = 0; i < length; i++) {
+            putFormatted(chars, i, buf.getByte(readerIndex + i));
         }
-        return sb.toString();
+        return finishFormatted(chars, length, truncated);
     }
 
     public static String formatHexString(ByteBuffer buffer) {
         if (buffer == null) {
             return "";
         }
-        StringBuilder sb = new StringBuilder();
         int position = buffer.position();
-        for (int i = 0; i < buffer.remaining(); i++) {
-            if (i > 0) {
-                sb.append(" ");
-            }
-            sb.append(String.format("%02X", buffer.get(position + i)));
+        int length = buffer.remaining();
+        char[] chars = newFormatBuffer(length, false);
+        for (int i = 0; i < length; i++) {
+            putFormatted(chars, i, buffer.get(position + i));
+        }
+        return finishFormatted(chars, length, false);
+    }
+
+    /**
+     * 将字节数组格式化为以空格分隔的大写十六进制字符串
+     */
+    public static String formatHexString(byte[] bytes) {
+        if (bytes == null) {
+            return "";
+        }
+        char[] chars = newFormatBuffer(bytes.length, false);
+        for (int i = 0; i < bytes.length; i++) {
+            putFormatted(chars, i, bytes[i]);
+        }
+        return finishFormatted(chars, bytes.length, false);
+    }
+
+    // 每个字节占 "XX " 三个字符，最后一个字节后没有空格；截断时末尾追加 "..."
+    private static char[] newFormatBuffer(int length, boolean truncated) {
+        int size = length == 0 ? 0 : length * 3 - 1;
+        return new char[truncated ? size + 3 : size];
+    }
+
+    private static void putFormatted(char[] chars, int i, byte b) {
+        int offset = i * 3;
+        int index = (b & 0xFF) << 1;
+        if (i > 0) {
+            chars[offset - 1] = ' ';
+        }
+        chars[offset] = UPPER_TABLE[index];
+        chars[offset + 1] = UPPER_TABLE[index + 1];
+    }
+
+    private static String finishFormatted(char[] chars, int length, boolean truncated) {
+        if (truncated) {
+            int offset = length == 0 ? 0 : length * 3 - 1;
+            chars[offset] = '.';
+            chars[offset + 1] = '.';
+            chars[offset + 2] = '.';
         }
-        return sb.toString();
+        return new String(chars);
     }
 }
@@ -1,8 +1,14 @@
 import cn.treedeep.link.util.CRC;
+import cn.treedeep.link.util.CRC16CCITT;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Random;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
@@ -384,4 +390,86 @@ public class CRCTests {
         doTest.apply(CRC.Parameters.CRC64ECMA, 0x31610F76CFB272A5L, "Whenever digital data is stored or interfaced, data corruption might occur. Since the beginning of computer science, people have been thinking of ways to deal with this type of problem. For serial data they came up with the solution to attach a parity bit to each sent byte. This simple detection mechanism works if an odd number of bits in a byte changes, but an even number of false bits in one byte will not be detected by the parity check. To overcome this problem people have searched for mathematical sound mechanisms to detect multiple false bits.");
     }
 
+
+    @Test
+    public void testCCITTEngine() {
+        CRC16CCITT engine = CRC16CCITT.INSTANCE;
+
+        assertEquals(0x29B1, engine.calculate("123456789".getBytes()));
+        assertEquals(0xD6ED, engine.calculate(longText.getBytes()));
+
+        // 与逐位计算的CRC.Parameters.CCITT结果保持一致（覆盖不足8字节的尾部和任意偏移）
+        Random random = new Random(20250412L);
+        for (int i = 0; i < 500; i++) {
+            byte[] data = new byte[random.nextInt(300)];
+            random.nextBytes(data);
+            int offset = data.length == 0 ? 0 : random.nextInt(data.length);
+            int length = data.length - offset;
+
+            long expected = CRC.calculateCRC(CRC.Parameters.CCITT, data, offset, length);
+            assertEquals(expected, engine.calculate(data, offset, length));
+
+            ByteBuf heap = Unpooled.wrappedBuffer(data);
+            ByteBuf direct = Unpooled.directBuffer(data.length).writeBytes(data);
+            try {
+                assertEquals(expected, engine.calculate(heap, offset, length));
+                assertEquals(expected, engine.calculate(direct, offset, length));
+
+                // 分段计算
+                int half = length / 2;
+                int crc = engine.init();
+                crc = engine.update(crc, data, offset, half);
+                crc = engine.update(crc, direct, offset + half, length - half);
+                assertEquals(expected, crc);
+            } finally {
+                heap.release();
+                direct.release();
+            }
+        }
+    }
+
+    @Test
+    public void testCCITTEngineCompositeBuffer() {
+        CRC16CCITT engine = CRC16CCITT.INSTANCE;
+        Random random = new Random(20250413L);
+
+        for (int i = 0; i < 200; i++) {
+            // 由堆内存、直接内存和空组件混合组成的CompositeByteBuf
+            CompositeByteBuf composite = Unpooled.compositeBuffer();
+            int parts = 1 + random.nextInt(6);
+            for (int p = 0; p < parts; p++) {
+                byte[] part = new byte[random.nextInt(40)];
+                random.nextBytes(part);
+                ByteBuf component = random.nextBoolean()
+                        ? Unpooled.wrappedBuffer(part)
+                        : Unpooled.directBuffer(part.length).writeBytes(part);
+                composite.addComponent(true, component);
+            }
+
+            try {
+                byte[] data = new byte[composite.readableBytes()];
+                composite.getBytes(0, data);
+                int offset = data.length == 0 ? 0 : random.nextInt(data.length);
+                int length = data.length - offset;
+                long expected = CRC.calculateCRC(CRC.Parameters.CCITT, data, offset, length);
+
+                assertEquals(expected, engine.calculate(composite, offset, length));
+                // CompositeByteBuf的切片走forEachByte路径
+                assertEquals(expected, engine.calculate(composite.slice(offset, length)));
+
+                // 按nioBuffers()逐段累加
+                int crc = engine.init();
+                for (ByteBuffer nioBuffer : composite.nioBuffers(offset, length)) {
+                    crc = engine.update(crc, nioBuffer);
+                }
+                assertEquals(expected, crc);
+
+                CRC16CCITT.Accumulator accumulator = engine.newAccumulator();
+                composite.forEachByte(offset, length, accumulator);
+                assertEquals(expected, accumulator.getValue());
+            } finally {
+                composite.release();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+import cn.treedeep.link.netty.ChannelManager;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChannelManagerTests {
+
+    private static final int DEVICE_COUNT = 50_000;
+
+    @Test
+    public void testReverseLookup() {
+        ChannelManager manager = new ChannelManager();
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        assertEquals(-1, (int) manager.getDeviceId(channel));
+        assertEquals(-1, (int) manager.removeChannel(channel));
+
+        manager.addChannel(1001, channel);
+        assertSame(channel, manager.getChannel(1001));
+        assertEquals(1001, (int) manager.getDeviceId(channel));
+
+        assertEquals(1001, (int) manager.removeChannel(channel));
+        assertNull(manager.getChannel(1001));
+        assertEquals(-1, (int) manager.removeChannel(channel));
+    }
+
+    @Test
+    public void testStaleChannelDoesNotRemoveReconnectedDevice() {
+        ChannelManager manager = new ChannelManager();
+        EmbeddedChannel oldChannel = new EmbeddedChannel();
+        EmbeddedChannel newChannel = new EmbeddedChannel();
+
+        manager.addChannel(1001, oldChannel);
+        manager.addChannel(1001, newChannel);
+
+        // 旧连接断开时不能删除设备的新连接
+        assertEquals(-1, (int) manager.removeChannel(oldChannel));
+        assertSame(newChannel, manager.getChannel(1001));
+        assertEquals(1001, (int) manager.removeChannel(newChannel));
+    }
+
+    /**
+     * 5万台设备同时断线再重连：每次删除都是常数时间，整体应在秒级以内完成
+     */
+    @Test
+    public void testReconnectStorm() throws Exception {
+        ChannelManager manager = new ChannelManager();
+        List<Channel> channels = new ArrayList<>(DEVICE_COUNT);
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            EmbeddedChannel channel = new EmbeddedChannel();
+            channels.add(channel);
+            manager.addChannel(i, channel);
+        }
+        assertEquals(DEVICE_COUNT, manager.getDeviceChannels().size());
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // 所有连接同时断开
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < DEVICE_COUNT; i += threads) {
+                        assertEquals(i, (int) manager.removeChannel(channels.get(i)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(0, manager.getDeviceChannels().size());
+
+            // 所有设备同时以新连接重连
+            futures.clear();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < DEVICE_COUNT; i += threads) {
+                        EmbeddedChannel channel = new EmbeddedChannel();
+                        manager.addChannel(i, channel);
+                        assertEquals(i, (int) manager.getDeviceId(channel));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(DEVICE_COUNT, manager.getDeviceChannels().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
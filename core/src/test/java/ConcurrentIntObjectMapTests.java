@@ -0,0 +1,115 @@
+import cn.treedeep.link.util.ConcurrentIntObjectMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentIntObjectMapTests {
+
+    @Test
+    public void testAgainstHashMap() {
+        ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>(4, 2);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(20250413L);
+
+        for (int i = 0; i < 200_000; i++) {
+            // 键范围较小，频繁命中已有键，覆盖替换、删除后移和扩容
+            int key = random.nextInt(5_000) - 2_500;
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    String value = "v" + i;
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                }
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Map<Integer, String> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        ConcurrentIntObjectMap<String> map = new ConcurrentIntObjectMap<>();
+        String first = new String("a");
+        String second = new String("a");
+
+        assertNull(map.putIfAbsent(0, first));
+        assertSame(first, map.putIfAbsent(0, second));
+        assertSame(first, map.get(0));
+
+        // 按引用比较，内容相同的另一个对象不会被删除
+        assertFalse(map.remove(0, second));
+        assertTrue(map.remove(0, first));
+        assertNull(map.get(0));
+        assertTrue(map.isEmpty());
+
+        map.put(Integer.MIN_VALUE, first);
+        map.put(Integer.MAX_VALUE, second);
+        assertSame(first, map.get(Integer.MIN_VALUE));
+        assertSame(second, map.get(Integer.MAX_VALUE));
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentRegistry() throws Exception {
+        ConcurrentIntObjectMap<Integer> map = new ConcurrentIntObjectMap<>();
+        int threads = 8;
+        int keysPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * keysPerThread;
+                futures.add(executor.submit(() -> {
+                    // 每个线程反复上线、查找、下线自己的一组设备
+                    for (int round = 0; round < 3; round++) {
+                        for (int i = base; i < base + keysPerThread; i++) {
+                            map.put(i, i);
+                        }
+                        for (int i = base; i < base + keysPerThread; i++) {
+                            assertEquals(Integer.valueOf(i), map.get(i));
+                        }
+                        for (int i = base; i < base + keysPerThread; i += 2) {
+                            assertEquals(Integer.valueOf(i), map.remove(i));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * keysPerThread / 2, map.size());
+        for (int i = 0; i < threads * keysPerThread; i++) {
+            if (i % 2 == 0) {
+                assertNull(map.get(i));
+            } else {
+                assertEquals(Integer.valueOf(i), map.get(i));
+            }
+        }
+    }
+}
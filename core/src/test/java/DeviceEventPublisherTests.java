@@ -0,0 +1,136 @@
+import cn.treedeep.link.event.AbstractDeviceEvent;
+import cn.treedeep.link.event.DefaultDeviceEvent;
+import cn.treedeep.link.event.DeviceEvent;
+import cn.treedeep.link.event.DeviceEventPublisher;
+import cn.treedeep.link.event.EventOverflowPolicy;
+import cn.treedeep.link.event.HeartbeatEvent;
+import cn.treedeep.link.event.KeyframeEvent;
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceEventPublisherTests {
+
+    @Test
+    public void testPerDeviceOrder() throws Exception {
+        DeviceEventPublisher publisher = new DeviceEventPublisher(4, 1024, EventOverflowPolicy.BLOCK);
+        int devices = 64;
+        int eventsPerDevice = 2_000;
+        Map<Integer, List<Integer>> received = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(devices * eventsPerDevice);
+
+        publisher.subscribe(event -> {
+            // 同一设备的事件只在一个分发线程上处理，这里的列表无需同步
+            received.computeIfAbsent(event.getDeviceId(), k -> new ArrayList<>()).add((Integer) event.getData());
+            done.countDown();
+        });
+
+        for (int seq = 0; seq < eventsPerDevice; seq++) {
+            for (int deviceId = 0; deviceId < devices; deviceId++) {
+                publisher.publishEvent(new DefaultDeviceEvent("KEYFRAME", deviceId, seq));
+            }
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        publisher.shutdown();
+
+        for (int deviceId = 0; deviceId < devices; deviceId++) {
+            List<Integer> sequence = received.get(deviceId);
+            assertEquals(eventsPerDevice, sequence.size());
+            for (int seq = 0; seq < eventsPerDevice; seq++) {
+                assertEquals(seq, (int) sequence.get(seq));
+            }
+        }
+        DeviceEventPublisher.DispatchStats stats = publisher.getStats();
+        assertEquals(devices * eventsPerDevice, stats.dispatched());
+        assertEquals(0, stats.dropped());
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotBlockPublisher() throws Exception {
+        DeviceEventPublisher publisher = new DeviceEventPublisher(1, 16, EventOverflowPolicy.DROP_OLDEST);
+        CountDownLatch release = new CountDownLatch(1);
+        publisher.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            publisher.publishEvent(new DefaultDeviceEvent("KEYFRAME", 1, i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("发布线程被阻塞 " + elapsedMillis + " ms", elapsedMillis < 1_000);
+
+        DeviceEventPublisher.DispatchStats stats = publisher.getStats();
+        assertTrue(stats.queueDepth() <= 16);
+        assertTrue(stats.dropped() >= 10_000 - 16 - 1);
+
+        release.countDown();
+        publisher.shutdown();
+    }
+
+    @Test
+    public void testSampleHeartbeatsKeepsOtherEvents() throws Exception {
+        DeviceEventPublisher publisher = new DeviceEventPublisher(1, 8, EventOverflowPolicy.SAMPLE_HEARTBEATS);
+        CountDownLatch release = new CountDownLatch(1);
+        List<DeviceEvent> received = new ArrayList<>();
+        publisher.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event);
+        });
+
+        // 第一个事件被分发线程取走后阻塞，其余的填满队列
+        for (int i = 0; i < 100; i++) {
+            publisher.publishEvent(new DefaultDeviceEvent(DeviceEventPublisher.HEARTBEAT, 1, i));
+        }
+        // 队列满时其它事件挤掉最早的心跳
+        for (int i = 0; i < 8; i++) {
+            publisher.publishEvent(new DefaultDeviceEvent("KEYFRAME", 1, i));
+        }
+
+        release.countDown();
+        publisher.shutdown();
+
+        long keyframes = received.stream().filter(e -> "KEYFRAME".equals(e.getType())).count();
+        assertEquals(8, keyframes);
+    }
+
+    @Test
+    public void testTypedSubscribers() {
+        DeviceEventPublisher publisher = new DeviceEventPublisher();
+        List<HeartbeatEvent> heartbeats = new ArrayList<>();
+        List<AbstractDeviceEvent> typed = new ArrayList<>();
+        publisher.subscribe(HeartbeatEvent.class, heartbeats::add);
+        publisher.subscribe(AbstractDeviceEvent.class, typed::add);
+
+        publisher.publishEvent(new HeartbeatEvent(1, 2, (byte) 80, (byte) 0, 1_700_000_000_000L));
+        publisher.publishEvent(new KeyframeEvent(1, 2, 10, 1_700_000_000_500L, 1_700_000_000_000L));
+        publisher.publishEvent(new DefaultDeviceEvent("DEVICE_CONNECTED", 1, null));
+
+        assertEquals(1, heartbeats.size());
+        assertEquals(2, typed.size());
+
+        HeartbeatEvent heartbeat = heartbeats.get(0);
+        assertEquals(DeviceEventPublisher.HEARTBEAT, heartbeat.getType());
+        assertEquals(1_700_000_000_000L, heartbeat.getEpochMillis());
+        assertEquals((byte) 80, heartbeat.getData().get("battery"));
+        assertEquals(1_700_000_000_000L, heartbeat.getTimestamp()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+}
@@ -0,0 +1,78 @@
+import cn.treedeep.link.config.LinkConfig;
+import cn.treedeep.link.netty.FileUploadManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class FileUploadManagerTests {
+
+    private static final int DEVICE_ID = 100;
+    private static final int TASK_ID = 7;
+    private static final int WINDOW = 8;
+
+    private Path uploadDir;
+    private FileUploadManager manager;
+
+    @Before
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("link-upload");
+        LinkConfig config = new LinkConfig();
+        config.setUploadPath(uploadDir.toString());
+        config.setUploadStreaming(true);
+        config.setUploadReorderWindow(WINDOW);
+        manager = new FileUploadManager(config);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        manager.shutdown();
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testGappedStreamWithinWindow() {
+        assertEquals(FileUploadManager.CacheResult.STORED, cache(1));
+        // 缺少第2帧，后续帧暂存在内存中
+        for (int seq = 3; seq <= WINDOW + 2; seq++) {
+            assertEquals(FileUploadManager.CacheResult.STORED, cache(seq));
+        }
+        assertEquals(WINDOW * 16L, manager.getBufferBudget().getBufferedBytes(DEVICE_ID));
+
+        // 缺口补齐后暂存的帧全部写入文件，预算归还
+        assertEquals(FileUploadManager.CacheResult.STORED, cache(2));
+        assertEquals(0, manager.getBufferBudget().getTotalBufferedBytes());
+    }
+
+    @Test
+    public void testGappedStreamBeyondWindowIsRejected() {
+        assertEquals(FileUploadManager.CacheResult.STORED, cache(1));
+        for (int seq = 3; seq <= WINDOW + 2; seq++) {
+            assertEquals(FileUploadManager.CacheResult.STORED, cache(seq));
+        }
+
+        // 超前待写入帧（第2帧）超过窗口：拒绝并放弃整个上传，暂存的帧全部释放
+        assertEquals(FileUploadManager.CacheResult.REJECTED, cache(WINDOW + 3));
+        assertEquals(0, manager.getBufferBudget().getTotalBufferedBytes());
+    }
+
+    private FileUploadManager.CacheResult cache(int frameSeq) {
+        ByteBuf frame = Unpooled.buffer(16).writeZero(16);
+        try {
+            return manager.cacheFileFrame(DEVICE_ID, TASK_ID, frameSeq, frame);
+        } finally {
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import cn.treedeep.link.protocol.v1.Protocol;
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import cn.treedeep.link.protocol.v1.Pv1FrameDecoder;
+import cn.treedeep.link.util.CRC16CCITT;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@Slf4j
+public class Pv1FrameDecoderTests {
+
+    private static final byte CMD_HEARTBEAT = 0x05;
+    private static final byte CMD_UPLOAD = 0x07;
+    // 帧头、帧尾和CRC占用的字节数
+    private static final int FRAME_OVERHEAD = 6 + 10 + 4;
+    // 协议总长度字段为2字节，帧最长0xFFFF字节
+    private static final int MAX_FRAME_LENGTH = 0xFFFF;
+
+    @Test
+    public void testSplitAndCoalescedFrames() {
+        TestDecoder decoder = new TestDecoder();
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf stream = Unpooled.buffer();
+        for (int i = 0; i < 10; i++) {
+            stream.writeBytes(frame(CMD_HEARTBEAT, i, new byte[]{80, 0}));
+        }
+        // 逐字节写入，覆盖所有半包位置
+        while (stream.isReadable()) {
+            channel.writeInbound(stream.readRetainedSlice(1));
+        }
+        stream.release();
+
+        for (int i = 0; i < 10; i++) {
+            TestFrame frame = channel.readInbound();
+            assertEquals(i, frame.getDeviceId());
+            assertEquals(2, frame.dataLength);
+        }
+        assertNull(channel.readInbound());
+        assertEquals(0, decoder.errors);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testResyncAfterGarbage() {
+        TestDecoder decoder = new TestDecoder();
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf stream = Unpooled.buffer();
+        stream.writeBytes(new byte[]{0x01, (byte) 0xAA, 0x02, (byte) 0xAA});
+        stream.writeBytes(frame(CMD_HEARTBEAT, 1, new byte[]{80, 0}));
+        stream.writeBytes(new byte[]{0x55, 0x55, (byte) 0xAA});
+        stream.writeBytes(frame(CMD_HEARTBEAT, 2, new byte[]{80, 0}));
+        channel.writeInbound(stream);
+
+        assertEquals(1, ((TestFrame) channel.readInbound()).getDeviceId());
+        assertEquals(2, ((TestFrame) channel.readInbound()).getDeviceId());
+        assertNull(channel.readInbound());
+        assertEquals(0, decoder.errors);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testBadCrcAndEndFlag() {
+        TestDecoder decoder = new TestDecoder();
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        byte[] badCrc = frame(CMD_HEARTBEAT, 1, new byte[]{80, 0});
+        badCrc[badCrc.length - 4] ^= 0x01;
+        byte[] badEnd = frame(CMD_HEARTBEAT, 2, new byte[]{80, 0});
+        badEnd[badEnd.length - 1] = 0;
+
+        ByteBuf stream = Unpooled.buffer();
+        stream.writeBytes(badCrc);
+        stream.writeBytes(badEnd);
+        stream.writeBytes(frame(CMD_HEARTBEAT, 3, new byte[]{80, 0}));
+        channel.writeInbound(stream);
+
+        assertEquals(3, ((TestFrame) channel.readInbound()).getDeviceId());
+        assertNull(channel.readInbound());
+        assertEquals(2, decoder.errors);
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * 单线程解码吞吐（帧/秒/核），用于前后版本对比：心跳帧每次读取64帧，64KB上传帧每次读取4帧。
+     * 默认构建跳过，需要时运行：{@code mvn test -Dlink.benchmark=true -Dtest=Pv1FrameDecoderTests#benchmarkThroughput}
+     */
+    @Test
+    public void benchmarkThroughput() {
+        Assume.assumeTrue(Boolean.getBoolean("link.benchmark"));
+
+        long heartbeats = measure(frame(CMD_HEARTBEAT, 1, new byte[]{80, 0}), 64, 20_000);
+        long uploads = measure(frame(CMD_UPLOAD, 1, new byte[MAX_FRAME_LENGTH - FRAME_OVERHEAD]), 4, 5_000);
+        log.info("Pv1FrameDecoder 心跳：{} 帧/秒，64KB上传帧：{} 帧/秒", heartbeats, uploads);
+    }
+
+    private static long measure(byte[] frame, int framesPerRead, int rounds) {
+        TestDecoder decoder = new TestDecoder();
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        ByteBuf batch = Unpooled.directBuffer(frame.length * framesPerRead);
+        for (int i = 0; i < framesPerRead; i++) {
+            batch.writeBytes(frame);
+        }
+
+        // 预热
+        decodeRounds(channel, batch, rounds);
+
+        long start = System.nanoTime();
+        decodeRounds(channel, batch, rounds);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(0, decoder.errors);
+        batch.release();
+        channel.finishAndReleaseAll();
+        return (long) rounds * framesPerRead * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsed);
+    }
+
+    private static void decodeRounds(EmbeddedChannel channel, ByteBuf batch, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            channel.writeInbound(batch.retainedDuplicate());
+            while (channel.readInbound() != null) {
+                // 丢弃
+            }
+        }
+    }
+
+    private static byte[] frame(byte command, int deviceId, byte[] data) {
+        int totalLength = FRAME_OVERHEAD + data.length;
+        ByteBuf buf = Unpooled.buffer(totalLength);
+        buf.writeShort(Protocol.START_FLAG);
+        buf.writeByte(Protocol.PROTOCOL_VERSION);
+        buf.writeShort(totalLength);
+        buf.writeByte(command);
+        buf.writeInt(deviceId);
+        buf.writeShort(1);
+        buf.writeInt(2);
+        buf.writeBytes(data);
+        buf.writeShort(CRC16CCITT.INSTANCE.calculate(buf, 0, buf.writerIndex()));
+        buf.writeShort(Protocol.END_FLAG);
+        byte[] bytes = new byte[totalLength];
+        buf.readBytes(bytes);
+        buf.release();
+        return bytes;
+    }
+
+    private static final class TestDecoder extends Pv1FrameDecoder {
+        int errors;
+
+        @Override
+        protected Pv1BaseFrame parseByCommand(byte command, ByteBuf payload) {
+            return new TestFrame(command, payload.readableBytes());
+        }
+
+        @Override
+        protected void sendErrorResponse(ChannelHandlerContext ctx) {
+            errors++;
+        }
+    }
+
+    private static final class TestFrame extends Pv1BaseFrame {
+        final byte command;
+        final int dataLength;
+
+        TestFrame(byte command, int dataLength) {
+            this.command = command;
+            this.dataLength = dataLength;
+        }
+
+        @Override
+        public byte getCommand() {
+            return command;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import cn.treedeep.link.protocol.v1.Pv1FrameDecoder;
+import cn.treedeep.link.protocol.v1.Pv1FrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Pv1FrameEncoderTests {
+
+    @Test
+    public void testExactSizeAndRoundTrip() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new TestEncoder());
+        EmbeddedChannel decoder = new EmbeddedChannel(new TestDecoder());
+
+        TestFrame[] frames = {
+                new TestFrame((byte) 0x85, new byte[0]),
+                new TestFrame((byte) 0x87, new byte[]{0, 0, 0, 3, 2}),
+                new TestFrame((byte) 0x86, new byte[300])
+        };
+        for (int i = 0; i < frames.length; i++) {
+            TestFrame frame = frames[i];
+            frame.setDeviceId(100 + i);
+            frame.setSessionId((short) i);
+            frame.setTaskId(7);
+
+            encoder.writeOutbound(frame);
+            ByteBuf encoded = encoder.readOutbound();
+            assertEquals(frame.encodedLength(), encoded.readableBytes());
+            assertEquals(frame.encodedLength(), encoded.capacity());
+
+            decoder.writeInbound(encoded);
+            TestFrame decoded = decoder.readInbound();
+            assertEquals(frame.getCommand(), decoded.getCommand());
+            assertEquals(frame.getDeviceId(), decoded.getDeviceId());
+            assertEquals(frame.getSessionId(), decoded.getSessionId());
+            assertEquals(frame.getTaskId(), decoded.getTaskId());
+            assertArrayEquals(frame.payload, decoded.payload);
+        }
+
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+    }
+
+    private static final class TestEncoder extends Pv1FrameEncoder {
+        @Override
+        protected void writePayload(ByteBuf buf, Pv1BaseFrame frame) {
+            buf.writeBytes(((TestFrame) frame).payload);
+        }
+    }
+
+    private static final class TestDecoder extends Pv1FrameDecoder {
+        @Override
+        protected Pv1BaseFrame parseByCommand(byte command, ByteBuf payload) {
+            byte[] bytes = new byte[payload.readableBytes()];
+            payload.readBytes(bytes);
+            return new TestFrame(command, bytes);
+        }
+
+        @Override
+        protected void sendErrorResponse(ChannelHandlerContext ctx) {
+        }
+    }
+
+    private static final class TestFrame extends Pv1BaseFrame {
+        final byte command;
+        final byte[] payload;
+
+        TestFrame(byte command, byte[] payload) {
+            this.command = command;
+            this.payload = payload;
+        }
+
+        @Override
+        public byte getCommand() {
+            return command;
+        }
+
+        @Override
+        public int payloadLength() {
+            return payload.length;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import cn.treedeep.link.protocol.v1.Pv1FrameEncoder;
+import cn.treedeep.link.protocol.v1.Pv1FrameTemplate;
+import cn.treedeep.link.protocol.v1.WireTrace;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class Pv1FrameTemplateTests {
+
+    @Test
+    public void testSameBytesAsEncoder() {
+        EmbeddedChannel channel = new EmbeddedChannel(new Pv1FrameEncoder() {
+            @Override
+            protected void writePayload(ByteBuf buf, Pv1BaseFrame frame) {
+            }
+        });
+
+        TestFrame prototype = new TestFrame((byte) 0x90, 0);
+        Pv1FrameTemplate template = Pv1FrameTemplate.of(prototype);
+
+        int[][] fields = {{0, 0, 0}, {1, 2, 3}, {-1, 0xFFFF, Integer.MIN_VALUE}, {123456, 42, 7}};
+        for (int[] field : fields) {
+            TestFrame frame = new TestFrame((byte) 0x90, 0);
+            frame.setDeviceId(field[0]);
+            frame.setSessionId((short) field[1]);
+            frame.setTaskId(field[2]);
+            channel.writeOutbound(frame);
+            ByteBuf expected = channel.readOutbound();
+
+            ByteBuf actual = template.encode(ByteBufAllocator.DEFAULT, field[0], (short) field[1], field[2]);
+            assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(actual));
+            assertEquals(Pv1BaseFrame.FIXED_LENGTH, actual.readableBytes());
+
+            expected.release();
+            actual.release();
+        }
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testTracesEncodedFrames() {
+        WireTrace trace = new WireTrace(8, 64, 0);
+        trace.setDeviceEnabled(1, true);
+        Pv1FrameTemplate template = Pv1FrameTemplate.of(new TestFrame((byte) 0x90, 0));
+
+        ByteBuf traced = template.encode(ByteBufAllocator.DEFAULT, 1, (short) 2, 3, trace);
+        ByteBuf untraced = template.encode(ByteBufAllocator.DEFAULT, 2, (short) 2, 3, trace);
+
+        List<WireTrace.Entry> entries = trace.snapshot();
+        assertEquals(1, entries.size());
+        WireTrace.Entry entry = entries.get(0);
+        assertEquals(WireTrace.Direction.OUTBOUND, entry.direction());
+        assertEquals(1, entry.deviceId());
+        assertEquals((byte) 0x90, entry.command());
+        assertEquals(Pv1BaseFrame.FIXED_LENGTH, entry.length());
+        assertEquals(ByteBufUtil.hexDump(traced), ByteBufUtil.hexDump(entry.raw()));
+        assertEquals(Pv1BaseFrame.FIXED_LENGTH, traced.readableBytes());
+
+        traced.release();
+        untraced.release();
+    }
+
+    @Test
+    public void testRejectsFramesWithPayload() {
+        assertThrows(IllegalArgumentException.class, () -> Pv1FrameTemplate.of(new TestFrame((byte) 0x91, 5)));
+    }
+
+    private static final class TestFrame extends Pv1BaseFrame {
+        final byte command;
+        final int payloadLength;
+
+        TestFrame(byte command, int payloadLength) {
+            this.command = command;
+            this.payloadLength = payloadLength;
+        }
+
+        @Override
+        public byte getCommand() {
+            return command;
+        }
+
+        @Override
+        public int payloadLength() {
+            return payloadLength;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import cn.treedeep.link.protocol.v1.WireTrace;
+import cn.treedeep.link.util.HexUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WireTraceTests {
+
+    @Test
+    public void testDeviceSwitchAndSampling() {
+        WireTrace trace = new WireTrace(8, 16, 0);
+        assertFalse(trace.shouldTrace(1));
+
+        trace.setDeviceEnabled(1, true);
+        assertTrue(trace.shouldTrace(1));
+        assertFalse(trace.shouldTrace(2));
+
+        trace.setDeviceEnabled(1, false);
+        trace.setSampleRate(1);
+        assertTrue(trace.shouldTrace(2));
+    }
+
+    @Test
+    public void testRingBufferKeepsLatestFrames() {
+        WireTrace trace = new WireTrace(4, 4, 0);
+        ByteBuf frame = Unpooled.wrappedBuffer(new byte[]{(byte) 0xAA, 0x55, 0x01, 0x00, 0x20, 0x05});
+        for (int deviceId = 0; deviceId < 10; deviceId++) {
+            trace.record(WireTrace.Direction.INBOUND, deviceId, (byte) 0x05, frame, 0, frame.readableBytes());
+        }
+
+        List<WireTrace.Entry> entries = trace.snapshot();
+        assertEquals(4, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            WireTrace.Entry entry = entries.get(i);
+            assertEquals(6 + i, entry.deviceId());
+            assertEquals(6, entry.length());
+            assertEquals("AA 55 01 00", entry.getHex());
+        }
+
+        trace.clear();
+        assertTrue(trace.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testHexFormatting() {
+        byte[] bytes = {0x00, (byte) 0xAB, 0x0F, (byte) 0xFF};
+        assertEquals("00ab0fff", HexUtil.bytesToHex(bytes));
+        assertEquals("00 AB 0F FF", HexUtil.formatHexString(Unpooled.wrappedBuffer(bytes)));
+        assertEquals("00 AB...", HexUtil.formatHexString(Unpooled.wrappedBuffer(bytes), 2));
+        assertEquals("", HexUtil.formatHexString(new byte[0]));
+    }
+}
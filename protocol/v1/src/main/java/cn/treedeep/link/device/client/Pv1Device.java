@@ -6,7 +6,7 @@ import cn.treedeep.link.device.protocol.model.report.ReportDeviceConnectionReque
 import cn.treedeep.link.device.protocol.model.report.ReportFileFrameUpload;
 import cn.treedeep.link.device.protocol.model.report.ReportFileUploadEnd;
 import cn.treedeep.link.device.protocol.model.report.ReportHeartbeatPacket;
-import cn.treedeep.link.protocol.v1.Protocol;
+import cn.treedeep.link.device.protocol.model.response.RespFileFrameUpload;
 import cn.treedeep.link.simulator.DeviceSimulator;
 import cn.treedeep.link.simulator.SimulatorStatus;
 import cn.treedeep.link.util.DatetimeUtil;
@@ -20,11 +20,14 @@ import io.netty.channel.socket.nio.NioSocketChannel;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,8 +45,12 @@ public class Pv1Device extends DeviceSimulator {
         super(deviceId);
     }
 
-    private volatile CountDownLatch frameAckLatch;
+    // 上传窗口：每个许可代表一个可发送的在途帧，收到确认后归还
+    private volatile Semaphore uploadPermits;
+    // 累计确认到的帧序号（该帧及之前的帧都已确认）
     private volatile int lastAckedFrameSeq = 0;
+    // 超出累计确认范围、已被单独确认的帧序号
+    private final BitSet ackedAhead = new BitSet();
     private volatile boolean uploading = false;
 
     private long startTime;
@@ -61,7 +68,6 @@ public class Pv1Device extends DeviceSimulator {
                         @Override
                         protected void initChannel(SocketChannel ch) {
                             ch.pipeline().addLast(
-                                    Protocol.lengthFieldBasedFrameDecoder(),
                                     new DeviceFrameDecoder(),
                                     new DeviceFrameEncoder(),
                                     new SimulatorHandler(Pv1Device.this)
@@ -149,7 +155,14 @@ public class Pv1Device extends DeviceSimulator {
     private void uploadVideoFile(File videoFile) throws IOException, InterruptedException {
         startTime = System.currentTimeMillis();
 
-        try (FileInputStream fis = new FileInputStream(videoFile)) {
+        int window = Math.max(1, uploadWindow);
+        synchronized (this) {
+            lastAckedFrameSeq = 0;
+            ackedAhead.clear();
+        }
+        uploadPermits = new Semaphore(window);
+
+        try (FileChannel fileChannel = FileChannel.open(videoFile.toPath(), StandardOpenOption.READ)) {
 
             // 对于局域网或高速网络，可以考虑使用128KB或256KB
             // 对于互联网传输，64KB通常是个不错的平衡点
@@ -157,37 +170,39 @@ public class Pv1Device extends DeviceSimulator {
 
             // 8192
             int bufferSize = 8192;
-            ByteBuf buffer = channel.alloc().directBuffer(bufferSize);
             int frameSeq = 0;
-            byte[] readBuffer = new byte[bufferSize];
-            int bytesRead;
 
-            log.info("设备【{}】开始读取文件: {}，文件大小: {}字节", deviceId, videoFile.getName(), videoFile.length());
+            log.info("设备【{}】开始读取文件: {}，文件大小: {}字节，上传窗口: {}帧",
+                    deviceId, videoFile.getName(), videoFile.length(), window);
 
-            while ((bytesRead = fis.read(readBuffer)) != -1) {
-                frameSeq++;
-
-                // 创建新的等待锁
-                frameAckLatch = new CountDownLatch(1);
+            while (true) {
+                // 等待窗口空出位置，超时时间5秒
+                if (!uploadPermits.tryAcquire(5, TimeUnit.SECONDS)) {
+                    throw new IOException("帧确认超时：已累计确认至" + lastAckedFrameSeq + "，已发送" + frameSeq);
+                }
 
-                buffer.clear();
-                buffer.writeBytes(readBuffer, 0, bytesRead);
+                // 在途的帧各自持有缓冲区，写出完成后释放
+                ByteBuf buffer = channel.alloc().directBuffer(bufferSize);
+                if (buffer.writeBytes(fileChannel, bufferSize) < 0) {
+                    buffer.release();
+                    uploadPermits.release();
+                    break;
+                }
+                frameSeq++;
 
                 ReportFileFrameUpload frameUpload = new ReportFileFrameUpload(frameSeq, buffer);
                 frameUpload.setDeviceId(deviceId);
                 frameUpload.setSessionId(sessionId);
                 frameUpload.setTaskId(taskId);
 
-                channel.writeAndFlush(frameUpload);
-                log.debug("设备【{}】已发送第{}帧数据，等待确认", deviceId, frameSeq);
-
-                // 等待确认，超时时间5秒
-                if (!frameAckLatch.await(5, TimeUnit.SECONDS)) {
-                    throw new IOException("帧确认超时：" + frameSeq);
-                }
+                channel.writeAndFlush(frameUpload).addListener(future -> buffer.release());
+                log.debug("设备【{}】已发送第{}帧数据", deviceId, frameSeq);
             }
 
-            buffer.release();
+            // 收回全部许可，即所有在途帧都已确认
+            if (!uploadPermits.tryAcquire(window, 5, TimeUnit.SECONDS)) {
+                throw new IOException("帧确认超时：已累计确认至" + lastAckedFrameSeq + "，共发送" + frameSeq);
+            }
 
             ReportFileUploadEnd uploadEnd = new ReportFileUploadEnd(frameSeq);
             uploadEnd.setDeviceId(deviceId);
@@ -203,15 +218,46 @@ public class Pv1Device extends DeviceSimulator {
     }
 
     public void notifyFrameAcked(int frameSeq) {
-        if (frameSeq - lastAckedFrameSeq == 1) {
-            log.debug("设备【{}】已收到第{}帧数据确认", deviceId, frameSeq);
+        notifyFrameAcked(frameSeq, RespFileFrameUpload.STATUS_RECEIVED);
+    }
 
-            lastAckedFrameSeq = frameSeq;
-            if (frameAckLatch != null) {
-                frameAckLatch.countDown();
+    /**
+     * 处理文件帧确认，确认可以乱序到达
+     *
+     * @param frameSeq      帧序号
+     * @param receiveStatus {@link RespFileFrameUpload#STATUS_CUMULATIVE} 表示该帧及之前的帧都已确认，否则只确认该帧
+     */
+    public synchronized void notifyFrameAcked(int frameSeq, byte receiveStatus) {
+        int newlyAcked = 0;
+
+        if (receiveStatus == RespFileFrameUpload.STATUS_CUMULATIVE) {
+            if (frameSeq <= lastAckedFrameSeq) {
+                log.warn("设备【{}】收到重复的累计确认：{}，已累计确认至：{}", deviceId, frameSeq, lastAckedFrameSeq);
+                return;
             }
+            // 区间内已单独确认过的帧不再重复归还许可
+            int aheadInRange = ackedAhead.get(lastAckedFrameSeq + 1, frameSeq + 1).cardinality();
+            newlyAcked = frameSeq - lastAckedFrameSeq - aheadInRange;
+            ackedAhead.clear(0, frameSeq + 1);
+            lastAckedFrameSeq = frameSeq;
         } else {
-            log.warn("设备【{}】收到重复的帧确认：{}，上次帧序号：{}", deviceId, frameSeq, lastAckedFrameSeq);
+            if (frameSeq <= lastAckedFrameSeq || ackedAhead.get(frameSeq)) {
+                log.warn("设备【{}】收到重复的帧确认：{}，已累计确认至：{}", deviceId, frameSeq, lastAckedFrameSeq);
+                return;
+            }
+            ackedAhead.set(frameSeq);
+            newlyAcked = 1;
+        }
+
+        // 单独确认的帧补齐缺口后并入累计确认
+        while (ackedAhead.get(lastAckedFrameSeq + 1)) {
+            ackedAhead.clear(++lastAckedFrameSeq);
+        }
+
+        log.debug("设备【{}】收到帧确认：{}，已累计确认至：{}", deviceId, frameSeq, lastAckedFrameSeq);
+        Semaphore permits = uploadPermits;
+        if (permits != null && newlyAcked > 0) {
+            permits.release(newlyAcked);
         }
     }
 
@@ -220,7 +266,10 @@ public class Pv1Device extends DeviceSimulator {
             uploadLatch.countDown();
         }
         // 重置帧序号
-        lastAckedFrameSeq = 0;
+        synchronized (this) {
+            lastAckedFrameSeq = 0;
+            ackedAhead.clear();
+        }
 
         long duration = System.currentTimeMillis() - startTime;
         String formattedDuration = DatetimeUtil.formatDuration(duration);
@@ -0,0 +1,227 @@
+package cn.treedeep.link.device.client;
+
+import cn.treedeep.link.device.client.codec.DeviceFrameDecoder;
+import cn.treedeep.link.device.client.codec.DeviceFrameEncoder;
+import cn.treedeep.link.device.protocol.V1;
+import cn.treedeep.link.device.protocol.model.report.ReportDeviceConnectionRequest;
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright © 深圳市树深计算机系统有限公司 版权所有
+ *
+ * <p>重连风暴压测</p>
+ * <p>
+ * 模拟网关重启后大量设备同时重连：所有设备同时发起连接并发送注册请求（REPORT_DEVICE_CONNECTION_REQUEST），
+ * 统计从发起连接到收到注册响应的耗时；一轮结束后全部断开，再进行下一轮。
+ * <p>
+ * 与 {@link Pv1Device} 不同，所有连接共用一个小的EventLoopGroup，只完成注册握手，不发送心跳，
+ * 单机可以模拟数万台设备；受限于本机临时端口数（net.ipv4.ip_local_port_range）和文件句柄数。
+ *
+ * @author 周广明
+ * @since 2025/4/18 14:20
+ */
+@Slf4j
+public class ReconnectStorm {
+
+    private final String host;
+    private final int port;
+    private final long timeoutMillis;
+
+    public ReconnectStorm(String host, int port, long timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 执行压测
+     *
+     * @param startDeviceId 起始设备ID
+     * @param count         设备数
+     * @param rounds        轮数，第一轮为首次上线，之后为断开后重连
+     * @return 每轮的结果
+     */
+    public List<Result> run(int startDeviceId, int count, int rounds) throws InterruptedException {
+        EventLoopGroup group = new NioEventLoopGroup(Runtime.getRuntime().availableProcessors(),
+                new DefaultThreadFactory("reconnect-storm", true));
+        List<Result> results = new ArrayList<>(rounds);
+        try {
+            for (int round = 1; round <= rounds; round++) {
+                Result result = runRound(group, round, startDeviceId, count);
+                log.info("重连风暴第 {} 轮：{}", round, result);
+                results.add(result);
+            }
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+        return results;
+    }
+
+    private Result runRound(EventLoopGroup group, int round, int startDeviceId, int count) throws InterruptedException {
+        long[] latencies = new long[count];
+        Arrays.fill(latencies, -1);
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        Channel[] channels = new Channel[count];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            int deviceId = startDeviceId + i;
+            long connectStart = System.nanoTime();
+            // 每台设备只计一次：注册成功，或连接失败、注册前断开
+            AtomicBoolean settled = new AtomicBoolean();
+            Runnable fail = () -> {
+                if (settled.compareAndSet(false, true)) {
+                    failed.incrementAndGet();
+                    done.countDown();
+                }
+            };
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(Integer.MAX_VALUE, timeoutMillis))
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(
+                                    new DeviceFrameDecoder(),
+                                    new DeviceFrameEncoder(),
+                                    new HandshakeHandler(deviceId, () -> {
+                                        if (settled.compareAndSet(false, true)) {
+                                            latencies[index] = System.nanoTime() - connectStart;
+                                            done.countDown();
+                                        }
+                                    })
+                            );
+                        }
+                    });
+
+            ChannelFuture future = bootstrap.connect(host, port);
+            channels[i] = future.channel();
+            future.addListener(f -> {
+                if (!f.isSuccess()) {
+                    fail.run();
+                }
+            });
+            // 连接成功但在收到注册响应前出错或被关闭，不必等到整轮超时
+            future.channel().closeFuture().addListener(f -> fail.run());
+        }
+
+        boolean completed = done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+        if (!completed) {
+            log.warn("重连风暴第 {} 轮在 {} ms内未全部完成", round, timeoutMillis);
+        }
+
+        // 全部断开，等待服务端处理完断开后再开始下一轮
+        for (Channel channel : channels) {
+            channel.close();
+        }
+        for (Channel channel : channels) {
+            channel.closeFuture().await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return Result.of(round, count, failed.get(), latencies, elapsedNanos);
+    }
+
+    /**
+     * 发送注册请求，收到注册响应时回调
+     */
+    private static final class HandshakeHandler extends SimpleChannelInboundHandler<Pv1BaseFrame> {
+        private final int deviceId;
+        private final Runnable onRegistered;
+        private boolean registered;
+
+        HandshakeHandler(int deviceId, Runnable onRegistered) {
+            this.deviceId = deviceId;
+            this.onRegistered = onRegistered;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            ReportDeviceConnectionRequest request = new ReportDeviceConnectionRequest();
+            request.setDeviceId(deviceId);
+            ctx.writeAndFlush(request);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Pv1BaseFrame frame) {
+            if (!registered && frame.getCommand() == V1.RESP_DEVICE_CONNECTION) {
+                registered = true;
+                onRegistered.run();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("设备【{}】重连异常：{}", deviceId, cause.getMessage());
+            ctx.close();
+        }
+    }
+
+    /**
+     * 一轮压测的结果
+     *
+     * @param round                  轮次
+     * @param devices                设备数
+     * @param registered             完成注册的设备数
+     * @param failed                 连接失败或注册前断开（含超时未注册）的设备数
+     * @param elapsedMillis          全部完成（或超时）的耗时
+     * @param registrationsPerSecond 每秒完成注册数
+     * @param p50Millis              注册耗时中位数
+     * @param p99Millis              注册耗时P99
+     * @param maxMillis              最大注册耗时
+     */
+    public record Result(int round,
+                         int devices,
+                         int registered,
+                         int failed,
+                         long elapsedMillis,
+                         long registrationsPerSecond,
+                         double p50Millis,
+                         double p99Millis,
+                         double maxMillis) {
+
+        static Result of(int round, int devices, int failed, long[] latencies, long elapsedNanos) {
+            long[] done = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            return new Result(round, devices, done.length, failed, elapsedMillis,
+                    elapsedNanos == 0 ? 0 : done.length * 1_000_000_000L / elapsedNanos,
+                    percentileMillis(done, 0.50),
+                    percentileMillis(done, 0.99),
+                    done.length == 0 ? 0 : done[done.length - 1] / 1e6);
+        }
+
+        private static double percentileMillis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
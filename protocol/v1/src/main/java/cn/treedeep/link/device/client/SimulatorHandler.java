@@ -40,7 +40,7 @@ public class SimulatorHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
                 break;
             case V1.RESP_FILE_FRAME_UPLOAD:
                 RespFileFrameUpload frameResp = (RespFileFrameUpload) frame;
-                simulator.notifyFrameAcked(frameResp.getFrameSeq());
+                simulator.notifyFrameAcked(frameResp.getFrameSeq(), frameResp.getReceiveStatus());
                 log.debug("模拟器 => 设备【{}】收到文件帧上传响应，帧序号：{}", simulator.getDeviceId(), frameResp.getFrameSeq());
                 break;
             case V1.RESP_FILE_UPLOAD_END:
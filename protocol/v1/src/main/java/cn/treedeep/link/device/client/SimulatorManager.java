@@ -11,6 +11,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class SimulatorManager {
 
@@ -56,6 +57,29 @@ public class SimulatorManager {
         }
     }
 
+    /**
+     * 以指定窗口大小上传文件，窗口内的帧不等待确认连续发送
+     */
+    public void startFileUpload(int deviceId, String filePath, int window) {
+        DeviceSimulator simulator = simulators.get(deviceId);
+        if (simulator != null) {
+            simulator.setUploadWindow(window);
+            simulator.uploadFile(filePath);
+        }
+    }
+
+    /**
+     * 重连风暴压测：指定数量的设备同时连接并注册，重复多轮
+     *
+     * @param startDeviceId 起始设备ID
+     * @param count         设备数
+     * @param rounds        轮数
+     * @return 每轮的注册耗时统计
+     */
+    public List<ReconnectStorm.Result> reconnectStorm(int startDeviceId, int count, int rounds) throws InterruptedException {
+        return new ReconnectStorm(serverHost, serverPort, TimeUnit.SECONDS.toMillis(60)).run(startDeviceId, count, rounds);
+    }
+
     public Map<String, Object> getSimulatorStatus(int deviceId) {
         DeviceSimulator simulator = simulators.get(deviceId);
         Map<String, Object> status = new HashMap<>();
@@ -5,6 +5,7 @@ import cn.treedeep.link.device.protocol.model.command.*;
 import cn.treedeep.link.device.protocol.model.response.*;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
 import cn.treedeep.link.protocol.v1.Pv1FrameDecoder;
+import cn.treedeep.link.protocol.v1.Pv1FrameTemplate;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +13,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DeviceFrameDecoder extends Pv1FrameDecoder {
 
+    // 错误响应没有扩展数据，所有连接共用一个编码模板
+    private static final Pv1FrameTemplate ERROR_TEMPLATE = Pv1FrameTemplate.of(new RespFrameError());
+
     @Override
     protected Pv1BaseFrame parseByCommand(byte command, ByteBuf data) {
 
@@ -67,7 +71,10 @@ public class DeviceFrameDecoder extends Pv1FrameDecoder {
 
     @Override
     protected void sendErrorResponse(ChannelHandlerContext ctx) {
-        ctx.writeAndFlush(new RespFrameError())
+        // 解码器位于编码器之前，直接写出模板编码好的帧，不经过编码器，抓包也在这里记录
+        ByteBuf frame = ERROR_TEMPLATE.encode(ctx.alloc(), 0, (short) 0, 0);
+        traceOutbound(ctx, ERROR_TEMPLATE, frame);
+        ctx.writeAndFlush(frame)
                 .addListener(future -> {
                     if (!future.isSuccess()) {
                         log.error("发送错误响应失败", future.cause());
@@ -4,11 +4,16 @@ import cn.treedeep.link.config.LinkConfig;
 import cn.treedeep.link.device.protocol.codec.FrameDecoder;
 import cn.treedeep.link.device.protocol.codec.FrameEncoder;
 import cn.treedeep.link.netty.NettyServer;
-import cn.treedeep.link.protocol.v1.Protocol;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.*;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.kqueue.KQueue;
 import io.netty.channel.kqueue.KQueueEventLoopGroup;
@@ -16,6 +21,7 @@ import io.netty.channel.kqueue.KQueueServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
@@ -24,6 +30,9 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Copyright © 深圳市树深计算机系统有限公司 版权所有
  *
@@ -39,6 +48,7 @@ public class Pv1NettyServer implements NettyServer {
     private final boolean primary;
     private final LinkConfig linkConfig;
     private final Pv1ServerHandler serverHandler;
+    private final WireTrace wireTrace;
 
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
@@ -51,9 +61,22 @@ public class Pv1NettyServer implements NettyServer {
      * @param serverHandler ServerHandler对象，用于处理服务器事件。
      */
     public Pv1NettyServer(boolean primary, LinkConfig linkConfig, Pv1ServerHandler serverHandler) {
+        this(primary, linkConfig, serverHandler, null);
+    }
+
+    /**
+     * 构造函数，用于初始化NettyServer。
+     *
+     * @param primary       是否主要服务？是，只有Netty服务正常启动整项目才可以启动。
+     * @param linkConfig    LinkConfig对象，用于获取服务器端口号。
+     * @param serverHandler ServerHandler对象，用于处理服务器事件。
+     * @param wireTrace     线路抓包，为null时不抓包。
+     */
+    public Pv1NettyServer(boolean primary, LinkConfig linkConfig, Pv1ServerHandler serverHandler, WireTrace wireTrace) {
         this.primary = primary;
         this.linkConfig = linkConfig;
         this.serverHandler = serverHandler;
+        this.wireTrace = wireTrace;
     }
 
     @Override
@@ -93,68 +116,122 @@ public class Pv1NettyServer implements NettyServer {
 
     }
 
+    // 池化的直接内存与全局默认分配器共用内存池，其余组合单独创建
+    private ByteBufAllocator createAllocator() {
+        boolean direct = linkConfig.isServerDirectBuffer();
+        if (linkConfig.isServerPooledAllocator()) {
+            return direct ? PooledByteBufAllocator.DEFAULT : new PooledByteBufAllocator(false);
+        }
+        return new UnpooledByteBufAllocator(direct);
+    }
+
     private void start(ApplicationContext applicationContext) throws InterruptedException {
         Class<? extends ServerChannel> channelClass;
+        int bossThreads = Math.max(1, linkConfig.getServerBossThreads());
+        int workerThreads = Math.max(0, linkConfig.getServerWorkerThreads());
+        boolean nativeTransport = linkConfig.isServerNativeTransport();
+        boolean epoll = nativeTransport && Epoll.isAvailable();
+
+        // 多个服务端通道以SO_REUSEPORT绑定同一端口，每个通道注册到一个独立的accept线程
+        int acceptors = Math.max(1, linkConfig.getServerAcceptors());
+        if (acceptors > 1 && !epoll) {
+            log.warn("多个accept通道需要epoll（SO_REUSEPORT），当前传输不支持，改为1个");
+            acceptors = 1;
+        }
+        bossThreads = Math.max(bossThreads, acceptors);
 
-        if (Epoll.isAvailable()) {
-            bossGroup = new EpollEventLoopGroup(1);  // Linux
-            workerGroup = new EpollEventLoopGroup();
+        if (epoll) {
+            bossGroup = new EpollEventLoopGroup(bossThreads);  // Linux
+            workerGroup = new EpollEventLoopGroup(workerThreads);
             channelClass = EpollServerSocketChannel.class;
-        } else if (KQueue.isAvailable()) {
-            bossGroup = new KQueueEventLoopGroup(1); // macOS/BSD
-            workerGroup = new KQueueEventLoopGroup();
+        } else if (nativeTransport && KQueue.isAvailable()) {
+            bossGroup = new KQueueEventLoopGroup(bossThreads); // macOS/BSD
+            workerGroup = new KQueueEventLoopGroup(workerThreads);
             channelClass = KQueueServerSocketChannel.class;
         } else {
-            bossGroup = new NioEventLoopGroup(1);    // 其他平台
-            workerGroup = new NioEventLoopGroup();
+            bossGroup = new NioEventLoopGroup(bossThreads);    // 其他平台
+            workerGroup = new NioEventLoopGroup(workerThreads);
             channelClass = NioServerSocketChannel.class;
         }
 
         // 添加关闭钩子
         Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
 
+        ByteBufAllocator allocator = createAllocator();
+
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
                 .channel(channelClass)
-                .option(ChannelOption.SO_BACKLOG, 128)
-                // 增加服务端接收缓冲区大小
-                .option(ChannelOption.SO_RCVBUF, 1024 * 1024)
+                .option(ChannelOption.SO_BACKLOG, linkConfig.getServerBacklog())
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
-                // 增加客户端连接的接收缓冲区大小
-                .childOption(ChannelOption.SO_RCVBUF, 1024 * 1024)
+                .childOption(ChannelOption.TCP_NODELAY, linkConfig.isServerTcpNoDelay())
+                // 接收缓冲区默认使用池化的直接内存，上传帧以切片形式暂存，不复制到堆上
+                .childOption(ChannelOption.ALLOCATOR, allocator)
                 // 增加写缓冲区大小
-                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(1024 * 1024, 4 * 1024 * 1024))
-                .childHandler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ch.pipeline()
-                                .addLast(Protocol.lengthFieldBasedFrameDecoder())
-                                .addLast(new FrameDecoder())
-                                .addLast(new FrameEncoder())
-                                .addLast(serverHandler);
-                    }
-                });
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(1024 * 1024, 4 * 1024 * 1024));
+
+        if (linkConfig.getServerReceiveBufferSize() > 0) {
+            // 在监听套接字上设置，accept的连接继承该值，大于64KB的窗口需要在握手前设置才能生效
+            b.option(ChannelOption.SO_RCVBUF, linkConfig.getServerReceiveBufferSize())
+                    .childOption(ChannelOption.SO_RCVBUF, linkConfig.getServerReceiveBufferSize());
+        }
+        if (linkConfig.getServerSendBufferSize() > 0) {
+            b.childOption(ChannelOption.SO_SNDBUF, linkConfig.getServerSendBufferSize());
+        }
+        if (epoll) {
+            b.option(EpollChannelOption.SO_REUSEPORT, linkConfig.isServerReusePort() || acceptors > 1)
+                    .childOption(EpollChannelOption.EPOLL_MODE,
+                            linkConfig.isServerEpollEdgeTriggered() ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED)
+                    .childOption(EpollChannelOption.TCP_QUICKACK, linkConfig.isServerTcpQuickAck());
+        }
+
+        log.info("Netty传输：{}，accept通道：{}，accept线程：{}，IO线程：{}，backlog：{}，分配器：{}",
+                channelClass.getSimpleName(), acceptors, bossThreads,
+                workerThreads > 0 ? workerThreads : "默认",
+                linkConfig.getServerBacklog(),
+                allocator.getClass().getSimpleName() + (linkConfig.isServerDirectBuffer() ? "(direct)" : "(heap)"));
+
+        b.childHandler(new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                if (linkConfig.isFlushConsolidation()) {
+                    // 放在最前面，合并整条流水线上所有处理器发出的flush
+                    ch.pipeline().addFirst(new FlushConsolidationHandler(linkConfig.getFlushConsolidationLimit()));
+                }
+                ch.pipeline()
+                        .addLast(new FrameDecoder(wireTrace, linkConfig.isFrameRecycling()))
+                        .addLast(new FrameEncoder(wireTrace))
+                        .addLast(serverHandler);
+            }
+        });
 
         try {
             // 使用await()而不是sync()，这样可以捕获绑定异常
-            ChannelFuture f = b.bind(linkConfig.getServerPort());
-            f.addListener((ChannelFutureListener) future -> {
-                if (future.isSuccess()) {
-                    log.info("Netty服务器启动成功，监听端口：{}", linkConfig.getServerPort());
-                } else {
-                    log.error("Netty服务器启动失败，无法绑定端口：{}", linkConfig.getServerPort(), future.cause());
-
-                    // 关闭Spring应用
-                    if (applicationContext != null) {
-                        ExitCodeGenerator exitCodeGenerator = () -> 1;
-                        SpringApplication.exit(applicationContext, exitCodeGenerator);
-                        System.exit(1);
+            // 每次bind按轮询注册到bossGroup中的下一个线程，accept线程数不少于通道数，各通道互不共享线程
+            List<ChannelFuture> futures = new ArrayList<>(acceptors);
+            for (int i = 0; i < acceptors; i++) {
+                ChannelFuture f = b.bind(linkConfig.getServerPort());
+                f.addListener((ChannelFutureListener) future -> {
+                    if (future.isSuccess()) {
+                        log.info("Netty服务器启动成功，监听端口：{}", linkConfig.getServerPort());
+                    } else {
+                        log.error("Netty服务器启动失败，无法绑定端口：{}", linkConfig.getServerPort(), future.cause());
+
+                        // 关闭Spring应用
+                        if (applicationContext != null) {
+                            ExitCodeGenerator exitCodeGenerator = () -> 1;
+                            SpringApplication.exit(applicationContext, exitCodeGenerator);
+                            System.exit(1);
+                        }
                     }
-                }
-            });
+                });
+                futures.add(f);
+            }
 
             // 等待服务器关闭
-            f.channel().closeFuture().sync();
+            for (ChannelFuture f : futures) {
+                f.channel().closeFuture().sync();
+            }
         } catch (Exception e) {
             log.error("Netty服务器启动过程中发生异常", e);
             throw e;
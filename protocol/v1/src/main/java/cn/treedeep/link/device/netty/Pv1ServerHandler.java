@@ -6,19 +6,24 @@ import cn.treedeep.link.device.protocol.model.response.*;
 import cn.treedeep.link.event.DefaultDeviceEvent;
 import cn.treedeep.link.event.DeviceEvent;
 import cn.treedeep.link.event.DeviceEventPublisher;
+import cn.treedeep.link.event.HeartbeatEvent;
+import cn.treedeep.link.event.KeyframeEvent;
+import cn.treedeep.link.event.UploadCompleteEvent;
 import cn.treedeep.link.netty.ChannelManager;
 import cn.treedeep.link.netty.DeviceSession;
 import cn.treedeep.link.netty.FileUploadManager;
 import cn.treedeep.link.netty.SessionManager;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
-import cn.treedeep.link.util.HexUtil;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -39,19 +44,45 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
     private final FileUploadManager fileUploadManager;
     private final DeviceEventPublisher eventPublisher;
 
+    // 文件帧批量确认的帧数，1表示逐帧确认
+    private final int uploadAckBatch;
+    // 批量确认时每个连接的确认进度（处理器是共享的，状态挂在连接上）
+    private static final AttributeKey<UploadAckState> UPLOAD_ACK_STATE = AttributeKey.valueOf("pv1.uploadAckState");
+    // 批量确认时允许超前连续范围的最大帧数，设备的上传窗口不能超过该值（2的幂）
+    private static final int MAX_ACK_WINDOW = 8192;
+
     public Pv1ServerHandler(SessionManager sessionManager,
                             ChannelManager channelManager,
                             FileUploadManager fileUploadManager,
                             DeviceEventPublisher eventPublisher) {
+        this(sessionManager, channelManager, fileUploadManager, eventPublisher, 1);
+    }
+
+    public Pv1ServerHandler(SessionManager sessionManager,
+                            ChannelManager channelManager,
+                            FileUploadManager fileUploadManager,
+                            DeviceEventPublisher eventPublisher,
+                            int uploadAckBatch) {
         this.sessionManager = sessionManager;
         this.channelManager = channelManager;
         this.fileUploadManager = fileUploadManager;
         this.eventPublisher = eventPublisher;
+        this.uploadAckBatch = Math.max(1, uploadAckBatch);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Pv1BaseFrame frame) {
+        try {
+            dispatch(ctx, frame);
+        } finally {
+            // 开启帧回收时归还帧对象，各处理方法不会在返回后继续持有帧
+            if (frame instanceof RecyclableFrame recyclable) {
+                recyclable.recycle();
+            }
+        }
+    }
 
+    private void dispatch(ChannelHandlerContext ctx, Pv1BaseFrame frame) {
         switch (frame.getCommand()) {
             case V1.REPORT_DEVICE_CONNECTION_REQUEST:
                 handleDeviceConnect(ctx, (ReportDeviceConnectionRequest) frame);
@@ -142,18 +173,13 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
         log.debug("心跳响应：【设备ID：{}】", heartbeat.getDeviceId());
 
         // 发布心跳事件
-        Map<String, Object> eventData = new HashMap<>();
-        eventData.put("timestamp", System.currentTimeMillis());
-        eventData.put("battery", heartbeat.getBattery());
-        eventData.put("status", heartbeat.getStatus());
-
-        DeviceEvent event = new DefaultDeviceEvent(
-                "HEARTBEAT",
+        eventPublisher.publishEvent(new HeartbeatEvent(
                 heartbeat.getDeviceId(),
                 heartbeat.getTaskId(),
-                eventData
-        );
-        eventPublisher.publishEvent(event);
+                heartbeat.getBattery(),
+                heartbeat.getStatus(),
+                System.currentTimeMillis()
+        ));
     }
 
     private void handleKeyframeMark(ChannelHandlerContext ctx, ReportKeyframeMark keyframe) {
@@ -169,17 +195,13 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
                 keyframe.getTimestamp());
 
         // 发布关键帧事件
-        Map<String, Object> eventData = new HashMap<>();
-        eventData.put("frameSeq", keyframe.getFrameSeq());
-        eventData.put("timestamp", keyframe.getTimestamp());
-
-        DeviceEvent event = new DefaultDeviceEvent(
-                "KEYFRAME_MARK",
+        eventPublisher.publishEvent(new KeyframeEvent(
                 keyframe.getDeviceId(),
                 keyframe.getTaskId(),
-                eventData
-        );
-        eventPublisher.publishEvent(event);
+                keyframe.getFrameSeq(),
+                keyframe.getTimestamp(),
+                System.currentTimeMillis()
+        ));
     }
 
     private void handleFileFrameUpload(ChannelHandlerContext ctx, ReportFileFrameUpload frame) {
@@ -192,24 +214,103 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
             int frameSeq = frame.getFrameSeq();
 
             // 使用FileUploadManager缓存文件帧
-            fileUploadManager.cacheFileFrame(deviceId, taskId, frameSeq, frameBuf);
+            FileUploadManager.CacheResult cached = fileUploadManager.cacheFileFrame(deviceId, taskId, frameSeq, frameBuf);
+            if (cached == FileUploadManager.CacheResult.REJECTED) {
+                // 帧没有保存下来：不能确认，否则设备不会重传；关闭连接让设备重新上传，断开时清理未完成的上传
+                log.error("文件帧保存失败，关闭连接：【设备ID：{}, 任务ID：{}, 帧序号：{}】", deviceId, taskId, frameSeq);
+                ctx.close();
+                return;
+            }
 
-            // 响应文件帧上传
-            RespFileFrameUpload response = new RespFileFrameUpload(frameSeq, (byte) 1);
-            response.setDeviceId(deviceId);
-            response.setSessionId(frame.getSessionId());
+            // 帧只能超出预算暂存在内存中时暂停读取该连接；改写磁盘的帧不占内存，不需要暂停
+            if (cached == FileUploadManager.CacheResult.OVER_BUDGET) {
+                fileUploadManager.getBufferBudget().pauseIfExhausted(ctx.channel());
+            }
 
-            ctx.writeAndFlush(response);
+            // 响应文件帧上传
+            if (uploadAckBatch > 1) {
+                ackFrameInBatch(ctx, frame);
+            } else {
+                RespFileFrameUpload response = new RespFileFrameUpload(frameSeq, RespFileFrameUpload.STATUS_RECEIVED);
+                response.setDeviceId(deviceId);
+                response.setSessionId(frame.getSessionId());
+                ctx.writeAndFlush(response);
+            }
             log.debug("文件帧上传：【设备ID：{}, 任务ID：{}, 帧序号：{}, 数据长度：{}】", deviceId, taskId, frameSeq, frameBuf.readableBytes());
 
         } catch (Exception e) {
             log.error("处理文件帧异常", e);
         } finally {
-            // 确保释放ByteBuf
-            if (frameBuf.refCnt() > 0) {
-                frameBuf.release();
+            // 释放帧持有的引用，FileUploadManager如需保留数据会自行retain
+            frameBuf.release();
+        }
+    }
+
+    /**
+     * 批量确认：按序到达的帧攒够 {@link #uploadAckBatch} 帧发送一次累计确认，
+     * 其余的在本次读取结束时（{@link #channelReadComplete}）确认；乱序或重复的帧立即单独确认。
+     * 确认只写入不刷新，统一在读取结束时刷新。
+     * <p>
+     * 确认进度属于一次上传：任务ID变化或从第一帧重新开始时重新计算。
+     * 帧序号来自设备，不可信，超前连续范围 {@link #MAX_ACK_WINDOW} 帧以上视为协议错误，关闭连接。
+     */
+    private void ackFrameInBatch(ChannelHandlerContext ctx, ReportFileFrameUpload frame) {
+        int taskId = frame.getTaskId();
+        int frameSeq = frame.getFrameSeq();
+
+        UploadAckState state = ctx.channel().attr(UPLOAD_ACK_STATE).get();
+        if (state == null || state.taskId != taskId || (frameSeq == 1 && state.receivedThrough >= 1)) {
+            // 新的上传：之前的确认进度（可能来自中途放弃的上传）作废
+            state = new UploadAckState(taskId);
+            ctx.channel().attr(UPLOAD_ACK_STATE).set(state);
+        }
+        state.deviceId = frame.getDeviceId();
+        state.sessionId = frame.getSessionId();
+
+        if (frameSeq == state.receivedThrough + 1) {
+            state.receivedThrough++;
+            // 缺口补齐，之前单独确认过的帧并入累计确认
+            while (state.receivedAhead.get(UploadAckState.slot(state.receivedThrough + 1))) {
+                state.receivedAhead.clear(UploadAckState.slot(++state.receivedThrough));
             }
+            if (state.receivedThrough - state.ackedThrough >= uploadAckBatch) {
+                writeCumulativeAck(ctx, state);
+            }
+        } else {
+            if (frameSeq > state.receivedThrough) {
+                if (frameSeq - state.receivedThrough > MAX_ACK_WINDOW) {
+                    log.warn("文件帧序号超出确认窗口，关闭连接：【设备ID：{}, 任务ID：{}, 帧序号：{}, 已连续接收：{}】",
+                            state.deviceId, taskId, frameSeq, state.receivedThrough);
+                    ctx.close();
+                    return;
+                }
+                state.receivedAhead.set(UploadAckState.slot(frameSeq));
+            }
+            RespFileFrameUpload response = new RespFileFrameUpload(frameSeq, RespFileFrameUpload.STATUS_RECEIVED);
+            response.setDeviceId(state.deviceId);
+            response.setSessionId(state.sessionId);
+            ctx.write(response);
+        }
+    }
+
+    private static void writeCumulativeAck(ChannelHandlerContext ctx, UploadAckState state) {
+        RespFileFrameUpload response = new RespFileFrameUpload(state.receivedThrough, RespFileFrameUpload.STATUS_CUMULATIVE);
+        response.setDeviceId(state.deviceId);
+        response.setSessionId(state.sessionId);
+        ctx.write(response);
+        state.ackedThrough = state.receivedThrough;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        UploadAckState state = ctx.channel().attr(UPLOAD_ACK_STATE).get();
+        if (state != null) {
+            if (state.receivedThrough > state.ackedThrough) {
+                writeCumulativeAck(ctx, state);
+            }
+            ctx.flush();
         }
+        ctx.fireChannelReadComplete();
     }
 
     private void handleFileUploadEnd(ChannelHandlerContext ctx, ReportFileUploadEnd end) {
@@ -217,30 +318,49 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
         int taskId = end.getTaskId();
         int totalFrames = end.getTotalFrames();
 
-        // 使用FileUploadManager保存文件
-        FileUploadManager.FileSaveResult result = fileUploadManager.saveFile(deviceId, taskId, totalFrames);
+        // 上传结束前确认剩余的帧，并清除本次上传的确认进度
+        UploadAckState ackState = ctx.channel().attr(UPLOAD_ACK_STATE).getAndSet(null);
+        if (ackState != null && ackState.taskId == taskId && ackState.receivedThrough > ackState.ackedThrough) {
+            writeCumulativeAck(ctx, ackState);
+            ctx.flush();
+        }
+
+        // 合并、落盘在I/O线程上执行，完成后回到该连接的EventLoop上响应
+        short sessionId = end.getSessionId();
+        Channel channel = ctx.channel();
+        fileUploadManager.saveFileAsync(deviceId, taskId, totalFrames).whenComplete((result, cause) -> {
+            if (cause != null) {
+                log.error("保存上传文件异常：【设备ID：{}, 任务ID：{}】", deviceId, taskId, cause);
+                result = new FileUploadManager.FileSaveResult(null, 0, false, null);
+            }
+            FileUploadManager.FileSaveResult saved = result;
+            channel.eventLoop().execute(() -> completeFileUpload(ctx, deviceId, taskId, sessionId, saved));
+        });
+    }
+
+    private void completeFileUpload(ChannelHandlerContext ctx, int deviceId, int taskId, short sessionId,
+                                    FileUploadManager.FileSaveResult result) {
+        // 文件摘要在保存时已经算好，响应和事件共用
+        byte[] fileHash = result.getFileHash();
+        String fileName = result.file() != null ? result.file().getName() : null;
 
         // 响应文件上传结束
-        RespFileUploadEnd response = new RespFileUploadEnd(result.frameCount(), result.getFileHash());
+        RespFileUploadEnd response = new RespFileUploadEnd(result.frameCount(), fileHash);
         response.setDeviceId(deviceId);
-        response.setSessionId(end.getSessionId());
+        response.setSessionId(sessionId);
 
         ctx.writeAndFlush(response);
-        log.info("文件上传结束：【设备ID：{}, 任务ID：{}, 总帧数：{}, 文件名：{}】", deviceId, taskId, result.frameCount(), result.file().getName());
+        log.info("文件上传结束：【设备ID：{}, 任务ID：{}, 总帧数：{}, 文件名：{}】", deviceId, taskId, result.frameCount(), fileName);
 
         // 发布文件上传完成事件
-        Map<String, Object> eventData = new HashMap<>();
-        eventData.put("totalFrames", result.frameCount());
-        eventData.put("fileName", result.file().getName());
-        eventData.put("MD5", HexUtil.bytesToHex(result.getFileHash()));
-
-        DeviceEvent event = new DefaultDeviceEvent(
-                "FILE_UPLOAD_COMPLETE",
+        eventPublisher.publishEvent(new UploadCompleteEvent(
                 deviceId,
                 taskId,
-                eventData
-        );
-        eventPublisher.publishEvent(event);
+                result.frameCount(),
+                fileName,
+                fileHash,
+                System.currentTimeMillis()
+        ));
     }
 
     private void handleDeviceConnect(ChannelHandlerContext ctx, ReportDeviceConnectionRequest request) {
@@ -273,6 +393,30 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
         eventPublisher.publishEvent(event);
     }
 
+    /**
+     * 批量确认时单个连接上一次上传的确认进度，只在该连接的EventLoop线程中访问
+     */
+    private static final class UploadAckState {
+        final int taskId;
+        int deviceId;
+        short sessionId;
+        // 连续收到的最大帧序号
+        int receivedThrough;
+        // 已发送累计确认的帧序号
+        int ackedThrough;
+        // 超出连续范围、已单独确认的帧序号，只记录 (receivedThrough, receivedThrough + MAX_ACK_WINDOW] 内的帧，
+        // 按帧序号对窗口取模存放，大小固定
+        final BitSet receivedAhead = new BitSet(MAX_ACK_WINDOW);
+
+        UploadAckState(int taskId) {
+            this.taskId = taskId;
+        }
+
+        static int slot(int frameSeq) {
+            return frameSeq & (MAX_ACK_WINDOW - 1);
+        }
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         log.info("设备通道已连接：【{}】", ctx.channel().remoteAddress());
@@ -286,11 +430,21 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
         log.info("设备通道已断开：【{}】", channel.remoteAddress());
         int deviceId = channelManager.removeChannel(channel);
 
+        super.channelInactive(ctx);
+
+        // 未注册的连接，或已被同一设备的新连接替换，会话属于新连接，不做处理
+        if (deviceId < 0) {
+            return;
+        }
+
         // 更新会话状态
         DeviceSession session = sessionManager.removeSession(deviceId);
-        session.setStatus(DeviceSession.SessionStatus.CLOSED);
+        if (session != null) {
+            session.setStatus(DeviceSession.SessionStatus.CLOSED);
+        }
 
-        super.channelInactive(ctx);
+        // 没有收到结束帧的上传不会再完成，释放缓存的帧和临时文件
+        fileUploadManager.abortUploads(deviceId);
 
         // 发布设备断开连接事件
         Map<String, Object> eventData = new HashMap<>();
@@ -315,7 +469,9 @@ public class Pv1ServerHandler extends SimpleChannelInboundHandler<Pv1BaseFrame>
 
         // 更新会话状态
         DeviceSession session = sessionManager.getSession(deviceId);
-        session.setStatus(DeviceSession.SessionStatus.INACTIVE);
+        if (session != null) {
+            session.setStatus(DeviceSession.SessionStatus.INACTIVE);
+        }
 
         Map<String, Object> eventData = new HashMap<>();
         eventData.put("timestamp", System.currentTimeMillis());
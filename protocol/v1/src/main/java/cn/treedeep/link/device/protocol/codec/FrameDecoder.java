@@ -5,6 +5,9 @@ import cn.treedeep.link.device.protocol.model.report.*;
 import cn.treedeep.link.device.protocol.model.response.RespFrameError;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
 import cn.treedeep.link.protocol.v1.Pv1FrameDecoder;
+import cn.treedeep.link.protocol.v1.Pv1FrameTemplate;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +15,29 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class FrameDecoder extends Pv1FrameDecoder {
 
+    // 错误响应没有扩展数据，所有连接共用一个编码模板
+    private static final Pv1FrameTemplate ERROR_TEMPLATE = Pv1FrameTemplate.of(new RespFrameError());
+
+    // 心跳和文件帧从对象池创建，由处理方归还
+    private final boolean recycleFrames;
+
+    public FrameDecoder() {
+        this(null, false);
+    }
+
+    public FrameDecoder(WireTrace wireTrace) {
+        this(wireTrace, false);
+    }
+
+    /**
+     * @param wireTrace     线路抓包，可为null
+     * @param recycleFrames 是否从对象池创建高频上报帧（心跳、文件帧），开启后处理方必须调用 {@link RecyclableFrame#recycle()}
+     */
+    public FrameDecoder(WireTrace wireTrace, boolean recycleFrames) {
+        super(wireTrace);
+        this.recycleFrames = recycleFrames;
+    }
+
     @Override
     protected Pv1BaseFrame parseByCommand(byte command, ByteBuf payload) {
 
@@ -29,17 +55,21 @@ public class FrameDecoder extends Pv1FrameDecoder {
                 return new ReportStopRecordingResponse(payload.readShort());
 
             case V1.REPORT_HEARTBEAT_PACKET:
-                return new ReportHeartbeatPacket(payload.readByte(), payload.readByte());
+                byte battery = payload.readByte();
+                byte status = payload.readByte();
+                return recycleFrames
+                        ? ReportHeartbeatPacket.newInstance(battery, status)
+                        : new ReportHeartbeatPacket(battery, status);
             case V1.REPORT_KEYFRAME_MARK:
                 return new ReportKeyframeMark(payload.readInt(), payload.readLong());
 
             case V1.REPORT_FILE_FRAME_UPLOAD:
-                // 读取文件数据
+                // 文件数据直接引用原始缓冲区（retain切片，不拷贝），由处理帧的一方负责释放
                 int frameSeq = payload.readInt();
-                int dataLength = payload.readableBytes();
-                byte[] frameData = new byte[dataLength];
-                payload.readBytes(frameData);
-                return new ReportFileFrameUpload(frameSeq, frameData);
+                ByteBuf frameData = payload.readRetainedSlice(payload.readableBytes());
+                return recycleFrames
+                        ? ReportFileFrameUpload.newInstance(frameSeq, frameData)
+                        : new ReportFileFrameUpload(frameSeq, frameData);
 
             case V1.REPORT_FILE_UPLOAD_END:
                 return new ReportFileUploadEnd(payload.readInt());
@@ -52,7 +82,10 @@ public class FrameDecoder extends Pv1FrameDecoder {
 
     @Override
     protected void sendErrorResponse(ChannelHandlerContext ctx) {
-        ctx.writeAndFlush(new RespFrameError())
+        // 解码器位于编码器之前，直接写出模板编码好的帧，不经过编码器，抓包也在这里记录
+        ByteBuf frame = ERROR_TEMPLATE.encode(ctx.alloc(), 0, (short) 0, 0);
+        traceOutbound(ctx, ERROR_TEMPLATE, frame);
+        ctx.writeAndFlush(frame)
                 .addListener(future -> {
                     if (!future.isSuccess()) {
                         log.error("发送错误响应失败", future.cause());
@@ -4,12 +4,20 @@ import cn.treedeep.link.device.protocol.V1;
 import cn.treedeep.link.device.protocol.model.response.*;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
 import cn.treedeep.link.protocol.v1.Pv1FrameEncoder;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import io.netty.buffer.ByteBuf;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class FrameEncoder extends Pv1FrameEncoder {
 
+    public FrameEncoder() {
+    }
+
+    public FrameEncoder(WireTrace wireTrace) {
+        super(wireTrace);
+    }
+
     @Override
     protected void writePayload(ByteBuf buf, Pv1BaseFrame frame) {
 
@@ -27,7 +35,7 @@ public class FrameEncoder extends Pv1FrameEncoder {
                 break;
 
             case V1.CMD_HEARTBEAT:
-                log.info("心跳检测");
+                log.debug("心跳检测");
                 break;
 
             case V1.CMD_FORCE_DISCONNECT:
@@ -21,4 +21,9 @@ public class ReportDeviceBindResponse extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.REPORT_DEVICE_BIND_RESPONSE;
     }
+
+    @Override
+    public int payloadLength() {
+        return 2;
+    }
 }
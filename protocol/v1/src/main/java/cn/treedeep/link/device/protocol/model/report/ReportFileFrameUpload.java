@@ -2,34 +2,83 @@ package cn.treedeep.link.device.protocol.model.report;
 
 import cn.treedeep.link.device.protocol.V1;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import lombok.AllArgsConstructor;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 /**
  * 文件单帧上传指令。
  * 用于设备向服务端上传单帧文件数据。
+ * <p>
+ * 服务端解码得到的 frameData 是接收缓冲区的 retain 切片（零拷贝），帧对象持有其中一个引用计数：
+ * 处理该帧的一方在处理结束时必须调用一次 {@code frameData.release()}；需要在处理结束后继续持有数据的一方
+ * （如 FileUploadManager）应自行 retain。
+ * <p>
+ * 开启帧回收时服务端通过 {@link #newInstance(int, ByteBuf)} 从对象池创建，处理结束后调用 {@link #recycle()} 归还；
+ * 归还只清空帧对象，不释放 frameData，frameData 仍按上面的约定释放（retain切片本身也由Netty池化）。
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
-@AllArgsConstructor
-public class ReportFileFrameUpload extends Pv1BaseFrame {
+public class ReportFileFrameUpload extends Pv1BaseFrame implements RecyclableFrame {
+
+    private static final Recycler<ReportFileFrameUpload> RECYCLER = new Recycler<>() {
+        @Override
+        protected ReportFileFrameUpload newObject(Handle<ReportFileFrameUpload> handle) {
+            return new ReportFileFrameUpload(handle);
+        }
+    };
 
     private int frameSeq;       // 帧序号(4B)
     private ByteBuf frameData;  // 文件数据
 
+    // 对象池句柄，不是从对象池创建时为null
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient Recycler.Handle<ReportFileFrameUpload> handle;
+
+    public ReportFileFrameUpload(int frameSeq, ByteBuf frameData) {
+        this.frameSeq = frameSeq;
+        this.frameData = frameData;
+        this.handle = null;
+    }
+
+    private ReportFileFrameUpload(Recycler.Handle<ReportFileFrameUpload> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池创建，处理结束后必须调用 {@link #recycle()}
+     */
+    public static ReportFileFrameUpload newInstance(int frameSeq, ByteBuf frameData) {
+        ReportFileFrameUpload frame = RECYCLER.get();
+        frame.frameSeq = frameSeq;
+        frame.frameData = frameData;
+        return frame;
+    }
+
     @Override
     public byte getCommand() {
         return V1.REPORT_FILE_FRAME_UPLOAD;
     }
 
+    @Override
+    public int payloadLength() {
+        return 4 + (frameData != null ? frameData.readableBytes() : 0);
+    }
+
 
     public ReportFileFrameUpload(int frameSeq, byte[] frameData) {
         this.frameSeq = frameSeq;
         // 创建一个ByteBuf并写入数据
         this.frameData = Unpooled.wrappedBuffer(frameData);
+        this.handle = null;
     }
 
     public byte[] getFrameDataBytes() {
@@ -43,4 +92,17 @@ public class ReportFileFrameUpload extends Pv1BaseFrame {
         return bytes;
     }
 
+    @Override
+    public void recycle() {
+        if (handle == null) {
+            return;
+        }
+        frameSeq = 0;
+        frameData = null;
+        setDeviceId(0);
+        setSessionId((short) 0);
+        setTaskId(0);
+        handle.recycle(this);
+    }
+
 }
@@ -22,4 +22,9 @@ public class ReportFileUploadEnd extends Pv1BaseFrame {
         return V1.REPORT_FILE_UPLOAD_END;
     }
 
+    @Override
+    public int payloadLength() {
+        return 4;
+    }
+
 }
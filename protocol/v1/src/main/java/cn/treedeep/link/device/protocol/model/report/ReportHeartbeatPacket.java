@@ -2,24 +2,80 @@ package cn.treedeep.link.device.protocol.model.report;
 
 import cn.treedeep.link.device.protocol.V1;
 import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
-import lombok.AllArgsConstructor;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 /**
  * 心跳包指令。
  * 用于设备向服务端发送心跳包，以维持连接。
+ * <p>
+ * 开启帧回收时服务端通过 {@link #newInstance(byte, byte)} 从对象池创建，处理结束后调用 {@link #recycle()} 归还。
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
-@AllArgsConstructor
-public class ReportHeartbeatPacket extends Pv1BaseFrame {
+public class ReportHeartbeatPacket extends Pv1BaseFrame implements RecyclableFrame {
+
+    private static final Recycler<ReportHeartbeatPacket> RECYCLER = new Recycler<>() {
+        @Override
+        protected ReportHeartbeatPacket newObject(Handle<ReportHeartbeatPacket> handle) {
+            return new ReportHeartbeatPacket(handle);
+        }
+    };
 
     private byte battery;   // 1字节电池
     private byte status;    // 1字节状态码
 
+    // 对象池句柄，不是从对象池创建时为null
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient Recycler.Handle<ReportHeartbeatPacket> handle;
+
+    public ReportHeartbeatPacket(byte battery, byte status) {
+        this.battery = battery;
+        this.status = status;
+        this.handle = null;
+    }
+
+    private ReportHeartbeatPacket(Recycler.Handle<ReportHeartbeatPacket> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 从对象池创建，处理结束后必须调用 {@link #recycle()}
+     */
+    public static ReportHeartbeatPacket newInstance(byte battery, byte status) {
+        ReportHeartbeatPacket packet = RECYCLER.get();
+        packet.battery = battery;
+        packet.status = status;
+        return packet;
+    }
+
     @Override
     public byte getCommand() {
         return V1.REPORT_HEARTBEAT_PACKET;
     }
+
+    @Override
+    public int payloadLength() {
+        return 2;
+    }
+
+    @Override
+    public void recycle() {
+        if (handle == null) {
+            return;
+        }
+        battery = 0;
+        status = 0;
+        setDeviceId(0);
+        setSessionId((short) 0);
+        setTaskId(0);
+        handle.recycle(this);
+    }
 }
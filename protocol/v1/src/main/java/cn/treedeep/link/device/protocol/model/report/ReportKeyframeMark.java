@@ -22,4 +22,9 @@ public class ReportKeyframeMark extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.REPORT_KEYFRAME_MARK;
     }
+
+    @Override
+    public int payloadLength() {
+        return 12;
+    }
 }
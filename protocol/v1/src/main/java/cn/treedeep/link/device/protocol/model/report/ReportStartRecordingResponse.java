@@ -21,4 +21,9 @@ public class ReportStartRecordingResponse extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.REPORT_START_RECORDING_RESPONSE;
     }
+
+    @Override
+    public int payloadLength() {
+        return 2;
+    }
 }
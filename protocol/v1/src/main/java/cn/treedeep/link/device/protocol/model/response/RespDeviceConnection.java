@@ -21,5 +21,10 @@ public class RespDeviceConnection extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.RESP_DEVICE_CONNECTION;
     }
+
+    @Override
+    public int payloadLength() {
+        return 8;
+    }
 }
 
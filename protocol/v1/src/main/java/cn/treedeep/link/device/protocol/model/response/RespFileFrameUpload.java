@@ -9,6 +9,9 @@ import lombok.EqualsAndHashCode;
 /**
  * 文件上传单帧响应指令。
  * 用于服务端响应设备的单帧文件上传请求。
+ * <p>
+ * 接收状态：{@link #STATUS_RECEIVED} 只确认帧序号对应的一帧（选择确认），
+ * {@link #STATUS_CUMULATIVE} 确认帧序号及之前的所有帧（累计确认），用于批量确认流水线上传。
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -18,8 +21,23 @@ public class RespFileFrameUpload extends Pv1BaseFrame {
     private int frameSeq;       // 帧序号(4B)
     private byte receiveStatus; // 接收状态(1B)
 
+    /**
+     * 已接收（单帧确认）
+     */
+    public static final byte STATUS_RECEIVED = 1;
+
+    /**
+     * 累计确认：该帧及之前的帧均已接收
+     */
+    public static final byte STATUS_CUMULATIVE = 2;
+
     @Override
     public byte getCommand() {
         return V1.RESP_FILE_FRAME_UPLOAD;
     }
+
+    @Override
+    public int payloadLength() {
+        return 5;
+    }
 }
@@ -22,4 +22,9 @@ public class RespFileUploadEnd extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.RESP_FILE_UPLOAD_END;
     }
+
+    @Override
+    public int payloadLength() {
+        return 4 + (fileHash != null ? fileHash.length : 0);
+    }
 }
@@ -21,4 +21,9 @@ public class RespHeartbeat extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.RESP_HEARTBEAT;
     }
+
+    @Override
+    public int payloadLength() {
+        return 8;
+    }
 }
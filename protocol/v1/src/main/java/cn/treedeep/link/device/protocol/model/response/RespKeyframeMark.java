@@ -22,4 +22,9 @@ public class RespKeyframeMark extends Pv1BaseFrame {
     public byte getCommand() {
         return V1.RESP_KEYFRAME_MARK;
     }
+
+    @Override
+    public int payloadLength() {
+        return 5;
+    }
 }
@@ -9,6 +9,7 @@ import cn.treedeep.link.netty.ChannelManager;
 import cn.treedeep.link.netty.FileUploadManager;
 import cn.treedeep.link.netty.NettyServer;
 import cn.treedeep.link.netty.SessionManager;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import cn.treedeep.link.service.Pv1DeviceService;
 import cn.treedeep.link.service.Pv1DeviceServiceImpl;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -23,8 +24,19 @@ public class AppConfig {
      */
     @Bean
     public NettyServer createNettyServer(LinkConfig linkConfig,
-                                         Pv1ServerHandler serverHandler) {
-        return new Pv1NettyServer(true, linkConfig, serverHandler);
+                                         Pv1ServerHandler serverHandler,
+                                         WireTrace wireTrace) {
+        return new Pv1NettyServer(true, linkConfig, serverHandler, wireTrace);
+    }
+
+    /**
+     * 创建线路抓包
+     */
+    @Bean
+    public WireTrace createWireTrace(LinkConfig config) {
+        return new WireTrace(config.getWireTraceCapacity(),
+                config.getWireTraceMaxFrameBytes(),
+                config.getWireTraceSampleRate());
     }
 
     /**
@@ -38,11 +50,13 @@ public class AppConfig {
 
 
     @Bean
-    public Pv1ServerHandler createPv1ServerHandler(SessionManager sessionManager,
+    public Pv1ServerHandler createPv1ServerHandler(LinkConfig linkConfig,
+                                                   SessionManager sessionManager,
                                                    ChannelManager channelManager,
                                                    FileUploadManager fileUploadManager,
                                                    DeviceEventPublisher eventPublisher) {
-        return new Pv1ServerHandler(sessionManager, channelManager, fileUploadManager, eventPublisher);
+        return new Pv1ServerHandler(sessionManager, channelManager, fileUploadManager, eventPublisher,
+                linkConfig.getUploadAckBatch());
     }
 
     @Bean
@@ -55,13 +69,18 @@ public class AppConfig {
         return new ChannelManager();
     }
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     public FileUploadManager createFileUploadManager(LinkConfig config) {
         return new FileUploadManager(config);
     }
 
-    @Bean
-    public DeviceEventPublisher createDeviceEventPublisher() {
+    @Bean(destroyMethod = "shutdown")
+    public DeviceEventPublisher createDeviceEventPublisher(LinkConfig config) {
+        if (config.isEventAsync()) {
+            return new DeviceEventPublisher(config.getEventDispatchThreads(),
+                    config.getEventQueueCapacity(),
+                    config.getEventOverflowPolicy());
+        }
         return new DeviceEventPublisher();
     }
 
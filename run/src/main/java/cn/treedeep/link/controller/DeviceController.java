@@ -1,7 +1,12 @@
 package cn.treedeep.link.controller;
 
+import cn.treedeep.link.event.DeviceEventPublisher;
 import cn.treedeep.link.model.DeviceInfo;
+import cn.treedeep.link.netty.FileUploadManager;
+import cn.treedeep.link.netty.UploadBufferBudget;
+import cn.treedeep.link.protocol.v1.WireTrace;
 import cn.treedeep.link.service.CommandResult;
+import cn.treedeep.link.service.EventStreamService;
 import cn.treedeep.link.service.Pv1DeviceService;
 import cn.treedeep.link.service.SseService;
 import jakarta.annotation.Resource;
@@ -9,9 +14,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -29,6 +38,18 @@ public class DeviceController {
     @Resource
     private Pv1DeviceService commandService;
 
+    @Resource
+    private FileUploadManager fileUploadManager;
+
+    @Resource
+    private DeviceEventPublisher eventPublisher;
+
+    @Resource
+    private EventStreamService eventStreamService;
+
+    @Resource
+    private WireTrace wireTrace;
+
     private final SseService sseService;
 
     @Autowired
@@ -103,17 +124,130 @@ public class DeviceController {
         return ResponseEntity.ok(commandService.forceDisconnect(deviceId));
     }
 
+    /**
+     * 查看上传缓冲区占用情况
+     *
+     * @return 缓冲预算、总缓冲字节数、暂停读取的连接数，以及各设备的缓冲字节数
+     */
+    @GetMapping("/upload/buffer")
+    public ResponseEntity<Map<String, Object>> getUploadBuffer() {
+        UploadBufferBudget budget = fileUploadManager.getBufferBudget();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxBufferedBytes", budget.getMaxBufferedBytes());
+        result.put("totalBufferedBytes", budget.getTotalBufferedBytes());
+        result.put("pausedChannels", budget.getPausedChannelCount());
+        result.put("devices", budget.getDeviceBufferedBytes());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 查看线路抓包记录
+     *
+     * @param deviceId 只返回该设备的记录，不传表示所有设备
+     * @return 采样率、开启抓包的设备，以及环形缓冲区中的原始帧（按时间先后）
+     */
+    @GetMapping("/wire-trace")
+    public ResponseEntity<Map<String, Object>> getWireTrace(@RequestParam(required = false) Integer deviceId) {
+        List<WireTrace.Entry> entries = wireTrace.snapshot();
+        if (deviceId != null) {
+            entries = entries.stream().filter(entry -> entry.deviceId() == deviceId).toList();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleRate", wireTrace.getSampleRate());
+        result.put("devices", wireTrace.getDevices());
+        result.put("capacity", wireTrace.getCapacity());
+        result.put("entries", entries);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 开启或关闭某个设备的线路抓包，开启后该设备收发的每一帧都会被记录
+     *
+     * @param deviceId 设备ID
+     * @param enabled  是否开启
+     */
+    @GetMapping("/wire-trace/device")
+    public ResponseEntity<Set<Integer>> setWireTraceDevice(@RequestParam int deviceId, @RequestParam boolean enabled) {
+        wireTrace.setDeviceEnabled(deviceId, enabled);
+        return ResponseEntity.ok(wireTrace.getDevices());
+    }
+
+    /**
+     * 设置线路抓包采样率
+     *
+     * @param rate 每N帧记录一帧，0表示不采样
+     */
+    @GetMapping("/wire-trace/sample")
+    public ResponseEntity<Integer> setWireTraceSampleRate(@RequestParam int rate) {
+        wireTrace.setSampleRate(rate);
+        return ResponseEntity.ok(wireTrace.getSampleRate());
+    }
+
+    /**
+     * 清空线路抓包记录
+     */
+    @DeleteMapping("/wire-trace")
+    public ResponseEntity<Void> clearWireTrace() {
+        wireTrace.clear();
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * 查看事件分发情况
+     *
+     * @return 分发模式、排队中的事件数、发布/分发/丢弃的事件数、分发延迟，以及SSE连接数和丢弃情况
+     */
+    @GetMapping("/events/stats")
+    public ResponseEntity<Map<String, Object>> getEventStats() {
+        Map<String, Object> sse = new LinkedHashMap<>();
+        sse.put("subscribers", sseService.getSubscriberCount());
+        sse.put("droppedFrames", sseService.getDroppedFrames());
+        sse.put("droppedClients", sseService.getDroppedClients());
+        sse.put("streamSubscribers", eventStreamService.getSubscriberCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dispatch", eventPublisher.getStats());
+        result.put("sse", sse);
+        return ResponseEntity.ok(result);
+    }
 
     /**
      * 创建SSE连接，用于接收所有设备的事件通知
      * 客户端可以通过此接口订阅服务器推送的实时事件
      *
+     * @param deviceIds 只接收这些设备的事件，不传表示所有设备
+     * @param types     只接收这些类型的事件，不传表示所有类型
      * @return SSE发射器，用于向客户端推送事件流
      */
     @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter subscribeToEvents() {
+    public SseEmitter subscribeToEvents(@RequestParam(required = false) List<Integer> deviceIds,
+                                        @RequestParam(required = false) List<String> types) {
         String clientId = UUID.randomUUID().toString();
-        return sseService.createEmitter(clientId);
+        return sseService.createEmitter(clientId, deviceIds, types);
+    }
+
+    /**
+     * 创建批量事件流，适合同时关注大量设备的看板
+     * 事件按批次写出：NDJSON每行一个JSON事件；CBOR每个事件为4字节大端长度前缀加CBOR编码
+     *
+     * @param format      流格式：ndjson（默认）或 cbor
+     * @param batchMillis 批次间隔（毫秒），默认200
+     * @param deviceIds   只接收这些设备的事件，不传表示所有设备
+     * @param types       只接收这些类型的事件，不传表示所有类型
+     * @return 响应体发射器，持续写出事件批次
+     */
+    @GetMapping("/events/stream")
+    public ResponseEntity<ResponseBodyEmitter> streamEvents(@RequestParam(defaultValue = "ndjson") String format,
+                                                            @RequestParam(defaultValue = "200") long batchMillis,
+                                                            @RequestParam(required = false) List<Integer> deviceIds,
+                                                            @RequestParam(required = false) List<String> types) {
+        EventStreamService.Format streamFormat = EventStreamService.Format.valueOf(format.toUpperCase());
+        MediaType mediaType = streamFormat == EventStreamService.Format.CBOR
+                ? EventStreamService.APPLICATION_CBOR
+                : EventStreamService.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(eventStreamService.createStream(streamFormat, batchMillis, deviceIds, types));
     }
 
     /**
@@ -121,11 +255,14 @@ public class DeviceController {
      * 客户端可以通过此接口订阅特定设备的实时事件
      *
      * @param deviceId 设备ID，唯一标识一个设备，只接收此设备的事件
+     * @param types    只接收这些类型的事件，不传表示所有类型
      * @return SSE发射器，用于向客户端推送指定设备的事件流
      */
     @GetMapping(path = "/{deviceId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter subscribeToDeviceEvents(@PathVariable int deviceId) {
-        String clientId = "DEVICE:" + deviceId;
-        return sseService.createEmitter(clientId);
+    public SseEmitter subscribeToDeviceEvents(@PathVariable int deviceId,
+                                              @RequestParam(required = false) List<String> types) {
+        // 同一设备可以有多个订阅者，客户端ID不能只用设备ID，否则后连接的会顶掉先连接的
+        String clientId = "DEVICE:" + deviceId + ":" + UUID.randomUUID();
+        return sseService.createEmitter(clientId, List.of(deviceId), types);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package cn.treedeep.link.controller;
 
+import cn.treedeep.link.device.client.ReconnectStorm;
 import cn.treedeep.link.device.client.SimulatorManager;
 import cn.treedeep.link.service.Pv1DeviceService;
 import cn.treedeep.link.simulator.DeviceSimulator;
@@ -70,10 +71,17 @@ public class SimulatorController {
 
     /**
      * 触发文件上传
+     *
+     * @param window 上传窗口（在途帧数），不传则沿用模拟器当前设置
      */
     @GetMapping("/{deviceId}/upload")
-    public ResponseEntity<String> uploadFile(@PathVariable int deviceId, @RequestParam String filePath) {
-        simulatorManager.startFileUpload(deviceId, filePath);
+    public ResponseEntity<String> uploadFile(@PathVariable int deviceId, @RequestParam String filePath,
+                                             @RequestParam(required = false) Integer window) {
+        if (window != null) {
+            simulatorManager.startFileUpload(deviceId, filePath, window);
+        } else {
+            simulatorManager.startFileUpload(deviceId, filePath);
+        }
         return ResponseEntity.ok("文件上传指令已发送");
     }
 
@@ -96,6 +104,21 @@ public class SimulatorController {
         return ResponseEntity.ok(simulators);
     }
 
+    /**
+     * 重连风暴压测：模拟网关重启后大量设备同时重连，返回每轮的注册耗时统计
+     *
+     * @param startDeviceId 起始设备ID
+     * @param count         设备数
+     * @param rounds        轮数
+     */
+    @GetMapping("/reconnect-storm")
+    public ResponseEntity<List<ReconnectStorm.Result>> reconnectStorm(
+            @RequestParam(defaultValue = "100000") int startDeviceId,
+            @RequestParam int count,
+            @RequestParam(defaultValue = "3") int rounds) throws InterruptedException {
+        return ResponseEntity.ok(simulatorManager.reconnectStorm(startDeviceId, count, rounds));
+    }
+
     /**
      * 删除模拟器
      */
@@ -1,5 +1,6 @@
 package cn.treedeep.link.event;
 
+import cn.treedeep.link.service.EventStreamService;
 import cn.treedeep.link.service.SseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,12 +12,21 @@ public class DeviceEventListener {
     private static final Logger log = LoggerFactory.getLogger(DeviceEventListener.class);
 
     @Autowired
-    public DeviceEventListener(DeviceEventPublisher eventPublisher, SseService sseService) {
+    public DeviceEventListener(DeviceEventPublisher eventPublisher,
+                               SseService sseService,
+                               EventStreamService eventStreamService,
+                               HeartbeatCoalescer heartbeatCoalescer) {
 
         // 订阅事件
         eventPublisher.subscribe(event -> {
             log.debug("接收到设备事件: {}", event);
+            // 心跳合并后周期推送，其它事件立即推送
+            if (event instanceof HeartbeatEvent heartbeat && heartbeatCoalescer.isEnabled()) {
+                heartbeatCoalescer.offer(heartbeat);
+                return;
+            }
             sseService.sendEventToAll(event);
+            eventStreamService.publish(event);
             // sseService.sendEventToClient("DEVICE:" + event.getDeviceId(), event);
         });
     }
@@ -0,0 +1,94 @@
+package cn.treedeep.link.event;
+
+import cn.treedeep.link.config.LinkConfig;
+import cn.treedeep.link.service.EventStreamService;
+import cn.treedeep.link.service.SseService;
+import cn.treedeep.link.util.ConcurrentIntObjectMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 心跳合并
+ * <p>
+ * 心跳事件不逐条推送给SSE和事件流客户端：每台设备只保留最新的一次心跳，
+ * 每个周期把这期间有心跳的设备合并成一个 {@link HeartbeatBatchEvent} 推送。
+ * 推送量从“设备数 / 心跳间隔”条每秒降为每周期一条，周期内没有心跳则不推送。
+ */
+@Slf4j
+@Component
+public class HeartbeatCoalescer {
+
+    private final SseService sseService;
+    private final EventStreamService eventStreamService;
+    private final long intervalMillis;
+
+    // 本周期内有心跳的设备 → 最新的心跳
+    private final ConcurrentIntObjectMap<HeartbeatEvent> pending = new ConcurrentIntObjectMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public HeartbeatCoalescer(LinkConfig config, SseService sseService, EventStreamService eventStreamService) {
+        this.sseService = sseService;
+        this.eventStreamService = eventStreamService;
+        this.intervalMillis = config.getSseHeartbeatCoalesceMillis();
+        if (intervalMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "heartbeat-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("心跳合并推送已启用，周期：{} ms", intervalMillis);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 是否合并心跳，不合并时心跳按普通事件逐条推送
+     */
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    /**
+     * 记录设备最新的心跳，同一周期内的旧心跳被覆盖
+     */
+    public void offer(HeartbeatEvent heartbeat) {
+        pending.put(heartbeat.getDeviceId(), heartbeat);
+    }
+
+    // 取出本周期的心跳并推送；取出与写入并发时按引用删除，期间到达的新心跳留到下个周期
+    private void flush() {
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<HeartbeatEvent> heartbeats = pending.values();
+            for (HeartbeatEvent heartbeat : heartbeats) {
+                pending.remove(heartbeat.getDeviceId(), heartbeat);
+            }
+            heartbeats.sort(Comparator.comparingInt(HeartbeatEvent::getDeviceId));
+            HeartbeatBatchEvent batch = new HeartbeatBatchEvent(heartbeats, System.currentTimeMillis());
+            sseService.sendEventToAll(batch);
+            eventStreamService.publish(batch);
+        } catch (Exception e) {
+            // 异常不能抛出，否则周期任务会被取消
+            log.error("心跳合并推送异常", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
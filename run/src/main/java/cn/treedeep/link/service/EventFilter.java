@@ -0,0 +1,62 @@
+package cn.treedeep.link.service;
+
+import cn.treedeep.link.event.DeviceEvent;
+import cn.treedeep.link.event.HeartbeatBatchEvent;
+import cn.treedeep.link.event.HeartbeatEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 推送订阅的服务端过滤条件：按设备ID、事件类型过滤
+ * <p>
+ * 心跳快照（{@link HeartbeatBatchEvent}）包含多台设备：订阅了 HEARTBEAT 的也接收快照，
+ * 按设备过滤时只保留快照中属于这些设备的部分。
+ */
+final class EventFilter {
+
+    static final EventFilter ALL = new EventFilter(null, null);
+
+    // 有序数组，二分查找，过滤时设备ID不装箱
+    private final int[] deviceIds;
+    private final Set<String> types;
+
+    private EventFilter(int[] deviceIds, Set<String> types) {
+        this.deviceIds = deviceIds;
+        this.types = types;
+    }
+
+    /**
+     * @param deviceIds 只接收这些设备的事件，null或空表示不过滤
+     * @param types     只接收这些类型的事件，null或空表示不过滤
+     */
+    static EventFilter of(Collection<Integer> deviceIds, Collection<String> types) {
+        int[] deviceFilter = deviceIds == null || deviceIds.isEmpty()
+                ? null
+                : deviceIds.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        Set<String> typeFilter = types == null || types.isEmpty() ? null : Set.copyOf(types);
+        return deviceFilter == null && typeFilter == null ? ALL : new EventFilter(deviceFilter, typeFilter);
+    }
+
+    /**
+     * 过滤事件
+     *
+     * @return 不接收时返回null；通常返回事件本身，按设备过滤的心跳快照返回只含这些设备的新快照
+     */
+    DeviceEvent apply(DeviceEvent event) {
+        if (event instanceof HeartbeatBatchEvent batch) {
+            if (types != null && !types.contains(HeartbeatBatchEvent.TYPE) && !types.contains(HeartbeatEvent.TYPE)) {
+                return null;
+            }
+            return deviceIds == null ? batch : batch.filter(deviceIds);
+        }
+        if (deviceIds != null && Arrays.binarySearch(deviceIds, event.getDeviceId()) < 0) {
+            return null;
+        }
+        if (types != null && !types.contains(event.getType())) {
+            return null;
+        }
+        return event;
+    }
+}
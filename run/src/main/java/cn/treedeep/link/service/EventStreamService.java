@@ -0,0 +1,254 @@
+package cn.treedeep.link.service;
+
+import cn.treedeep.link.config.LinkConfig;
+import cn.treedeep.link.event.DeviceEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量事件流推送服务
+ * <p>
+ * 面向同时关注大量设备的看板，替代逐条JSON文本的SSE：
+ * <ul>
+ *     <li>事件按紧凑格式 {@link StreamEvent} 编码，每种格式只编码一次，所有订阅者共享</li>
+ *     <li>每个订阅者攒一个批次（默认200毫秒）一次写出，写次数和HTTP分块开销按批次计</li>
+ *     <li>NDJSON：每行一个JSON事件；CBOR：每个事件是一个4字节大端长度前缀 + CBOR编码</li>
+ * </ul>
+ * 队列、慢客户端的处理与SSE相同（link.sseQueueCapacity、link.sseDropSlowClients）。
+ */
+@Service
+@Slf4j
+public class EventStreamService {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+
+    /**
+     * 流格式
+     */
+    public enum Format {
+        NDJSON, CBOR
+    }
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final int queueCapacity;
+    private final boolean dropSlowClients;
+
+    public EventStreamService(LinkConfig config) {
+        this.queueCapacity = Math.max(1, config.getSseQueueCapacity());
+        this.dropSlowClients = config.isSseDropSlowClients();
+    }
+
+    /**
+     * 创建事件流
+     *
+     * @param format      流格式
+     * @param batchMillis 批次间隔（毫秒），小于等于0表示有事件即写出
+     * @param deviceIds   只接收这些设备的事件，null或空表示不过滤
+     * @param types       只接收这些类型的事件，null或空表示不过滤
+     * @return 响应体发射器
+     */
+    public ResponseBodyEmitter createStream(Format format, long batchMillis,
+                                            Collection<Integer> deviceIds, Collection<String> types) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(Long.MAX_VALUE);
+        long id = nextId.incrementAndGet();
+        Subscriber subscriber = new Subscriber(id, format, Math.max(0, batchMillis), emitter,
+                EventFilter.of(deviceIds, types), new ArrayBlockingQueue<>(queueCapacity));
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            emitter.complete();
+            remove(subscriber);
+        });
+        emitter.onError((ex) -> {
+            log.error("事件流连接错误: {}", id, ex);
+            emitter.complete();
+            remove(subscriber);
+        });
+
+        subscribers.put(id, subscriber);
+        subscriber.writer = Thread.ofVirtual().name("event-stream-" + id).start(() -> writeLoop(subscriber));
+        log.info("事件流已连接: {}，格式：{}，批次间隔：{} ms", id, format, subscriber.batchMillis);
+        return emitter;
+    }
+
+    /**
+     * 推送事件
+     */
+    public void publish(DeviceEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        // 每种格式最多编码一次
+        byte[][] frames = new byte[Format.values().length][];
+        for (Subscriber subscriber : subscribers.values()) {
+            DeviceEvent accepted = subscriber.filter.apply(event);
+            if (accepted == null) {
+                continue;
+            }
+            byte[] frame;
+            if (accepted != event) {
+                frame = encode(accepted, subscriber.format);
+            } else {
+                int index = subscriber.format.ordinal();
+                if (frames[index] == null) {
+                    frames[index] = encode(event, subscriber.format);
+                }
+                frame = frames[index];
+            }
+            if (frame != null) {
+                enqueue(subscriber, frame);
+            }
+        }
+    }
+
+    /**
+     * 当前事件流连接数
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 编码一个事件帧
+     *
+     * @return NDJSON为一行JSON（含换行符），CBOR为4字节大端长度前缀加CBOR编码；失败返回null
+     */
+    public static byte[] encode(DeviceEvent event, Format format) {
+        StreamEvent streamEvent = StreamEvent.of(event);
+        try {
+            if (format == Format.NDJSON) {
+                byte[] json = JSON_MAPPER.writeValueAsBytes(streamEvent);
+                byte[] frame = new byte[json.length + 1];
+                System.arraycopy(json, 0, frame, 0, json.length);
+                frame[json.length] = '\n';
+                return frame;
+            }
+
+            byte[] cbor = CBOR_MAPPER.writeValueAsBytes(streamEvent);
+            byte[] frame = new byte[cbor.length + 4];
+            frame[0] = (byte) (cbor.length >>> 24);
+            frame[1] = (byte) (cbor.length >>> 16);
+            frame[2] = (byte) (cbor.length >>> 8);
+            frame[3] = (byte) cbor.length;
+            System.arraycopy(cbor, 0, frame, 4, cbor.length);
+            return frame;
+        } catch (IOException e) {
+            log.error("事件序列化失败", e);
+            return null;
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, byte[] frame) {
+        if (subscriber.queue.offer(frame)) {
+            return;
+        }
+
+        if (dropSlowClients) {
+            log.warn("事件流客户端 {} 消费过慢（队列已满：{}），断开连接", subscriber.id, queueCapacity);
+            remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+
+        // 丢弃最早的帧，保留最新的
+        subscriber.queue.poll();
+        subscriber.queue.offer(frame);
+    }
+
+    // 等到第一个事件后再攒一个批次，批次内的帧拼接后一次写出
+    private void writeLoop(Subscriber subscriber) {
+        MediaType mediaType = subscriber.format == Format.NDJSON ? APPLICATION_NDJSON : APPLICATION_CBOR;
+        List<byte[]> batch = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            while (subscribers.get(subscriber.id) == subscriber) {
+                batch.add(subscriber.queue.take());
+                if (subscriber.batchMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(subscriber.batchMillis);
+                }
+                subscriber.queue.drainTo(batch);
+
+                out.reset();
+                for (byte[] frame : batch) {
+                    out.write(frame);
+                }
+                batch.clear();
+                subscriber.emitter.send(out.toByteArray(), mediaType);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            log.error("向事件流客户端 {} 发送事件失败", subscriber.id, e);
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.id, subscriber)) {
+            log.info("事件流已断开: {}", subscriber.id);
+            subscriber.queue.clear();
+            Thread writer = subscriber.writer;
+            if (writer != null && writer != Thread.currentThread()) {
+                writer.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 流中的事件：只保留类型、设备、任务、毫秒时间戳和数据，字段名尽量短
+     */
+    public record StreamEvent(String type, int deviceId, int taskId, long ts, Object data) {
+
+        static StreamEvent of(DeviceEvent event) {
+            return new StreamEvent(event.getType(), event.getDeviceId(), event.getTaskId(),
+                    event.getEpochMillis(), event.getData());
+        }
+    }
+
+    /**
+     * 一个事件流连接
+     */
+    private static final class Subscriber {
+        final long id;
+        final Format format;
+        final long batchMillis;
+        final ResponseBodyEmitter emitter;
+        final EventFilter filter;
+        final BlockingQueue<byte[]> queue;
+        volatile Thread writer;
+
+        Subscriber(long id, Format format, long batchMillis, ResponseBodyEmitter emitter,
+                   EventFilter filter, BlockingQueue<byte[]> queue) {
+            this.id = id;
+            this.format = format;
+            this.batchMillis = batchMillis;
+            this.emitter = emitter;
+            this.filter = filter;
+            this.queue = queue;
+        }
+    }
+}
@@ -1,84 +1,243 @@
 package cn.treedeep.link.service;
 
+import cn.treedeep.link.config.LinkConfig;
 import cn.treedeep.link.event.DeviceEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * SSE推送服务
+ * <p>
+ * 事件只序列化一次：编码成SSE帧后由所有订阅者共享，每个订阅者一个有界队列和一个虚拟线程负责写出，
+ * 发布方（事件分发线程或Netty的EventLoop）只做过滤和入队，不会被网络写阻塞。
+ * 订阅者队列满时视为慢客户端：默认断开，也可配置为丢弃最早的帧。
+ * 订阅时可按设备ID、事件类型在服务端过滤。
+ */
 @Service
 @Slf4j
 public class SseService {
 
-    private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final int queueCapacity;
+    private final boolean dropSlowClients;
+
+    // 因队列满丢弃的帧数、断开的慢客户端数
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong droppedClients = new AtomicLong();
+
     {
         objectMapper.registerModule(new JavaTimeModule());
     }
 
+    public SseService(LinkConfig config) {
+        this.queueCapacity = Math.max(1, config.getSseQueueCapacity());
+        this.dropSlowClients = config.isSseDropSlowClients();
+    }
+
+    /**
+     * 创建接收所有事件的SSE连接
+     */
     public SseEmitter createEmitter(String clientId) {
+        return createEmitter(clientId, null, null);
+    }
+
+    /**
+     * 创建SSE连接
+     *
+     * @param clientId  客户端ID
+     * @param deviceIds 只接收这些设备的事件，null或空表示不过滤
+     * @param types     只接收这些类型的事件，null或空表示不过滤
+     * @return SSE发射器
+     */
+    public SseEmitter createEmitter(String clientId, Collection<Integer> deviceIds, Collection<String> types) {
         SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        Subscriber subscriber = new Subscriber(clientId, emitter, EventFilter.of(deviceIds, types),
+                new ArrayBlockingQueue<>(queueCapacity));
 
         emitter.onCompletion(() -> {
             log.info("SSE连接完成: {}", clientId);
-            emitters.remove(clientId);
+            remove(subscriber);
         });
 
         emitter.onTimeout(() -> {
             log.info("SSE连接超时: {}", clientId);
             emitter.complete();
-            emitters.remove(clientId);
+            remove(subscriber);
         });
 
         emitter.onError((ex) -> {
             log.error("SSE连接错误: {}", clientId, ex);
             emitter.complete();
-            emitters.remove(clientId);
+            remove(subscriber);
         });
 
-        emitters.put(clientId, emitter);
+        // 写线程先创建、后启动：订阅者发布到映射表之前writer已经赋值，并发的remove总能中断它；
+        // 启动前就被移除时，写线程检查到自己不在映射表中直接退出
+        subscriber.writer = Thread.ofVirtual().name("sse-" + clientId).unstarted(() -> writeLoop(subscriber));
+
+        // 同一客户端ID重复连接时替换旧连接
+        Subscriber previous = subscribers.put(clientId, subscriber);
+        if (previous != null) {
+            Thread writer = previous.writer;
+            if (writer != null) {
+                writer.interrupt();
+            }
+            previous.emitter.complete();
+        }
+        subscriber.writer.start();
         return emitter;
     }
 
     public void sendEventToAll(DeviceEvent event) {
-        String eventData;
-        try {
-            eventData = objectMapper.writeValueAsString(event);
-        } catch (Exception e) {
-            log.error("事件序列化失败", e);
+        if (subscribers.isEmpty()) {
             return;
         }
 
-        emitters.forEach((clientId, emitter) -> {
-            try {
-                emitter.send(SseEmitter.event().name(event.getType()).data(eventData));
-            } catch (IOException e) {
-                log.error("向客户端 {} 发送事件失败", clientId, e);
-                emitter.completeWithError(e);
-                emitters.remove(clientId);
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = null;
+        for (Subscriber subscriber : subscribers.values()) {
+            DeviceEvent accepted = subscriber.filter.apply(event);
+            if (accepted == null) {
+                continue;
             }
-        });
+            // 过滤后的心跳快照只属于该订阅者，单独编码
+            if (accepted != event) {
+                Set<ResponseBodyEmitter.DataWithMediaType> filteredFrame = encode(accepted);
+                if (filteredFrame != null) {
+                    enqueue(subscriber, filteredFrame);
+                }
+                continue;
+            }
+            // 至少有一个订阅者需要时才编码，所有订阅者共享同一帧
+            if (frame == null) {
+                frame = encode(event);
+                if (frame == null) {
+                    return;
+                }
+            }
+            enqueue(subscriber, frame);
+        }
     }
 
     public void sendEventToClient(String clientId, DeviceEvent event) {
-        SseEmitter emitter = emitters.get(clientId);
-        if (emitter == null) {
+        Subscriber subscriber = subscribers.get(clientId);
+        if (subscriber == null) {
             return;
         }
 
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = encode(event);
+        if (frame != null) {
+            enqueue(subscriber, frame);
+        }
+    }
+
+    /**
+     * 当前SSE连接数
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 因订阅者队列满而丢弃的帧数
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * 因消费过慢被断开的客户端数
+     */
+    public long getDroppedClients() {
+        return droppedClients.get();
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> encode(DeviceEvent event) {
         try {
             String eventData = objectMapper.writeValueAsString(event);
-            emitter.send(SseEmitter.event().name(event.getType()).data(eventData));
-        } catch (IOException e) {
-            log.error("向客户端 {} 发送事件失败", clientId, e);
-            emitter.completeWithError(e);
-            emitters.remove(clientId);
+            return SseEmitter.event().name(event.getType()).data(eventData).build();
+        } catch (Exception e) {
+            log.error("事件序列化失败", e);
+            return null;
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+        if (subscriber.queue.offer(frame)) {
+            return;
+        }
+        droppedFrames.incrementAndGet();
+
+        if (dropSlowClients) {
+            log.warn("SSE客户端 {} 消费过慢（队列已满：{}），断开连接", subscriber.clientId, queueCapacity);
+            droppedClients.incrementAndGet();
+            remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+
+        // 丢弃最早的帧，保留最新的
+        subscriber.queue.poll();
+        subscriber.queue.offer(frame);
+    }
+
+    private void writeLoop(Subscriber subscriber) {
+        try {
+            while (subscribers.get(subscriber.clientId) == subscriber) {
+                Set<ResponseBodyEmitter.DataWithMediaType> frame = subscriber.queue.take();
+                subscriber.emitter.send(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            log.error("向客户端 {} 发送事件失败", subscriber.clientId, e);
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.clientId, subscriber)) {
+            subscriber.queue.clear();
+            Thread writer = subscriber.writer;
+            if (writer != null && writer != Thread.currentThread()) {
+                writer.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 一个SSE连接：过滤条件、待发送的帧和写线程
+     */
+    private static final class Subscriber {
+        final String clientId;
+        final SseEmitter emitter;
+        final EventFilter filter;
+        final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        volatile Thread writer;
+
+        Subscriber(String clientId,
+                   SseEmitter emitter,
+                   EventFilter filter,
+                   BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue) {
+            this.clientId = clientId;
+            this.emitter = emitter;
+            this.filter = filter;
+            this.queue = queue;
         }
     }
-}
\ No newline at end of file
+}
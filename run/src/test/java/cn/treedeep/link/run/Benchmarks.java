@@ -0,0 +1,50 @@
+package cn.treedeep.link.run;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 按需运行的基准测试
+ * <p>
+ * 基准测试类用 {@code @EnabledIfSystemProperty(named = Benchmarks.ENABLED, matches = "true")} 标注，默认构建跳过，
+ * 需要时运行：{@code mvn test -Dlink.benchmark=true -Dtest=<测试类>}。结果写入日志，不做断言之外的判断。
+ */
+final class Benchmarks {
+
+    static final String ENABLED = "link.benchmark";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Benchmarks() {
+    }
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * 所有收集器累计的GC次数
+     */
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * 所有收集器累计的GC耗时（毫秒）
+     */
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
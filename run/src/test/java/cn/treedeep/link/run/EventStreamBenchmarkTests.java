@@ -0,0 +1,88 @@
+package cn.treedeep.link.run;
+
+import cn.treedeep.link.event.DeviceEvent;
+import cn.treedeep.link.event.HeartbeatEvent;
+import cn.treedeep.link.service.EventStreamService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 事件推送编码对比（按需运行，见 {@link Benchmarks}）：逐条SSE JSON 与 批量NDJSON / CBOR
+ * <p>
+ * 模拟2万台设备各一次心跳，比较单个客户端的编码耗时和写出字节数。
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED, matches = "true")
+class EventStreamBenchmarkTests {
+
+    private static final int DEVICE_COUNT = 20_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void compareWithSse() {
+        List<DeviceEvent> events = new ArrayList<>(DEVICE_COUNT);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            events.add(new HeartbeatEvent(i, 1, (byte) (i % 100), (byte) 0, now + i));
+        }
+
+        long sseBytes = measure("SSE", events, EventStreamBenchmarkTests::sseFrame);
+        long ndjsonBytes = measure("NDJSON", events, event -> EventStreamService.encode(event, EventStreamService.Format.NDJSON));
+        long cborBytes = measure("CBOR", events, event -> EventStreamService.encode(event, EventStreamService.Format.CBOR));
+
+        assertTrue(ndjsonBytes < sseBytes);
+        assertTrue(cborBytes < ndjsonBytes);
+    }
+
+    // 编码全部事件若干轮，记录每轮的平均耗时和分配量，返回一轮写出的字节数
+    private static long measure(String name, List<DeviceEvent> events, Function<DeviceEvent, byte[]> encoder) {
+        long bytes = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            bytes = encodeAll(events, encoder);
+        }
+
+        long allocated = Benchmarks.allocatedBytes();
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            encodeAll(events, encoder);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = Benchmarks.allocatedBytes() - allocated;
+
+        log.info("{}：{} 个事件，写出 {} 字节，每轮 {} ms，每个事件分配 {} 字节",
+                name, events.size(), bytes, String.format("%.1f", elapsed / 1e6 / ROUNDS),
+                allocated / ((long) ROUNDS * events.size()));
+        return bytes;
+    }
+
+    private static long encodeAll(List<DeviceEvent> events, Function<DeviceEvent, byte[]> encoder) {
+        long bytes = 0;
+        for (DeviceEvent event : events) {
+            bytes += encoder.apply(event).length;
+        }
+        return bytes;
+    }
+
+    // 与SseService相同的编码：完整事件对象序列化为JSON，再加上SSE的event/data行
+    private static byte[] sseFrame(DeviceEvent event) {
+        try {
+            String data = OBJECT_MAPPER.writeValueAsString(event);
+            return ("event:" + event.getType() + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cn.treedeep.link.run;
+
+import cn.treedeep.link.event.HeartbeatEvent;
+import cn.treedeep.link.service.EventStreamService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 事件流的帧格式：NDJSON每行一个事件，CBOR每个事件带4字节大端长度前缀
+ */
+class EventStreamServiceTests {
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+    private static final HeartbeatEvent EVENT = new HeartbeatEvent(1001, 7, (byte) 85, (byte) 2, 1_713_500_000_000L);
+
+    @Test
+    void ndjsonFrameIsOneLine() throws Exception {
+        byte[] frame = EventStreamService.encode(EVENT, EventStreamService.Format.NDJSON);
+
+        assertEquals('\n', frame[frame.length - 1]);
+        String line = new String(frame, 0, frame.length - 1, StandardCharsets.UTF_8);
+        assertFalse(line.contains("\n"));
+        assertEvent(JSON_MAPPER.readTree(line));
+    }
+
+    @Test
+    void cborFrameHasBigEndianLengthPrefix() throws Exception {
+        byte[] frame = EventStreamService.encode(EVENT, EventStreamService.Format.CBOR);
+
+        int length = ByteBuffer.wrap(frame, 0, 4).getInt();
+        assertEquals(frame.length - 4, length);
+        assertEvent(CBOR_MAPPER.readTree(Arrays.copyOfRange(frame, 4, frame.length)));
+    }
+
+    @Test
+    void batchedFramesSplitBack() throws Exception {
+        HeartbeatEvent second = new HeartbeatEvent(1002, 8, (byte) 10, (byte) 0, 1_713_500_000_500L);
+
+        // 写出线程把一批帧直接拼接后发送
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        ndjson.write(EventStreamService.encode(EVENT, EventStreamService.Format.NDJSON));
+        ndjson.write(EventStreamService.encode(second, EventStreamService.Format.NDJSON));
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEvent(JSON_MAPPER.readTree(lines[0]));
+        assertEquals(1002, JSON_MAPPER.readTree(lines[1]).get("deviceId").asInt());
+
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        cbor.write(EventStreamService.encode(EVENT, EventStreamService.Format.CBOR));
+        cbor.write(EventStreamService.encode(second, EventStreamService.Format.CBOR));
+        ByteBuffer buffer = ByteBuffer.wrap(cbor.toByteArray());
+        byte[] first = new byte[buffer.getInt()];
+        buffer.get(first);
+        byte[] next = new byte[buffer.getInt()];
+        buffer.get(next);
+        assertFalse(buffer.hasRemaining());
+        assertEvent(CBOR_MAPPER.readTree(first));
+        assertEquals(1002, CBOR_MAPPER.readTree(next).get("deviceId").asInt());
+    }
+
+    private static void assertEvent(JsonNode node) {
+        assertEquals(HeartbeatEvent.TYPE, node.get("type").asText());
+        assertEquals(1001, node.get("deviceId").asInt());
+        assertEquals(7, node.get("taskId").asInt());
+        assertEquals(1_713_500_000_000L, node.get("ts").asLong());
+        assertEquals(85, node.get("data").get("battery").asInt());
+        assertEquals(2, node.get("data").get("status").asInt());
+    }
+}
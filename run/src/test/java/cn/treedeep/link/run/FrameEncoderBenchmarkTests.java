@@ -0,0 +1,87 @@
+package cn.treedeep.link.run;
+
+import cn.treedeep.link.device.protocol.codec.FrameEncoder;
+import cn.treedeep.link.device.protocol.model.response.RespFileFrameUpload;
+import cn.treedeep.link.device.protocol.model.response.RespHeartbeat;
+import cn.treedeep.link.protocol.v1.Pv1BaseFrame;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 下发帧编码的堆分配（按需运行，见 {@link Benchmarks}）
+ * <p>
+ * 帧对象在计量之前创建，只统计编码路径（输出缓冲区分配、写入、出站传递）在当前线程上的堆分配；
+ * 池化的直接内存不计入。
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED, matches = "true")
+class FrameEncoderBenchmarkTests {
+
+    private static final int FRAMES = 200_000;
+
+    @Test
+    void heartbeatAllocation() {
+        measure("RespHeartbeat", FrameEncoderBenchmarkTests::heartbeat);
+    }
+
+    @Test
+    void fileFrameAckAllocation() {
+        measure("RespFileFrameUpload", FrameEncoderBenchmarkTests::ack);
+    }
+
+    private static void measure(String name, IntFunction<Pv1BaseFrame> factory) {
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameEncoder());
+
+        // 预热
+        encode(channel, frames(factory));
+
+        Pv1BaseFrame[] frames = frames(factory);
+        long allocated = Benchmarks.allocatedBytes();
+        long bytes = encode(channel, frames);
+        allocated = Benchmarks.allocatedBytes() - allocated;
+
+        assertEquals((long) frames[0].encodedLength() * FRAMES, bytes);
+        channel.finishAndReleaseAll();
+        log.info("{}：{} 帧，每帧 {} 字节，编码时每帧分配 {} 字节",
+                name, FRAMES, frames[0].encodedLength(), String.format("%.1f", (double) allocated / FRAMES));
+    }
+
+    private static Pv1BaseFrame[] frames(IntFunction<Pv1BaseFrame> factory) {
+        Pv1BaseFrame[] frames = new Pv1BaseFrame[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            frames[i] = factory.apply(i);
+        }
+        return frames;
+    }
+
+    // 逐帧编码并释放输出缓冲区，返回编码的总字节数
+    private static long encode(EmbeddedChannel channel, Pv1BaseFrame[] frames) {
+        long bytes = 0;
+        for (Pv1BaseFrame frame : frames) {
+            channel.writeOutbound(frame);
+            ByteBuf encoded = channel.readOutbound();
+            bytes += encoded.readableBytes();
+            encoded.release();
+        }
+        return bytes;
+    }
+
+    private static Pv1BaseFrame heartbeat(int deviceId) {
+        RespHeartbeat frame = new RespHeartbeat(System.currentTimeMillis());
+        frame.setDeviceId(deviceId);
+        return frame;
+    }
+
+    private static Pv1BaseFrame ack(int frameSeq) {
+        RespFileFrameUpload frame = new RespFileFrameUpload(frameSeq, RespFileFrameUpload.STATUS_RECEIVED);
+        frame.setDeviceId(1);
+        return frame;
+    }
+}
@@ -0,0 +1,96 @@
+package cn.treedeep.link.run;
+
+import cn.treedeep.link.device.protocol.codec.FrameDecoder;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static cn.treedeep.link.run.FrameRecyclingTests.FRAMES_PER_READ;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 心跳帧解码负载：普通创建与对象池回收对比（按需运行，见 {@link Benchmarks}）
+ * <p>
+ * 按每秒5万次心跳的速率持续10秒，每次读取64帧，统计每帧的堆分配、分配速率，以及期间的GC次数和GC耗时。
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = Benchmarks.ENABLED, matches = "true")
+class FrameRecyclingBenchmarkTests {
+
+    private static final int HEARTBEATS_PER_SECOND = 50_000;
+    private static final int SECONDS = 10;
+    private static final int READS = HEARTBEATS_PER_SECOND * SECONDS / FRAMES_PER_READ;
+
+    @Test
+    void compareRecycling() {
+        ByteBuf batch = FrameRecyclingTests.heartbeatBatch();
+        try {
+            // 预热，不限速
+            run(batch, false, 0);
+            run(batch, true, 0);
+
+            long readIntervalNanos = TimeUnit.SECONDS.toNanos(1) * FRAMES_PER_READ / HEARTBEATS_PER_SECOND;
+            report("普通创建", run(batch, false, readIntervalNanos));
+            report("对象回收", run(batch, true, readIntervalNanos));
+        } finally {
+            batch.release();
+        }
+    }
+
+    // 按给定间隔逐次读取一批心跳帧，间隔为0时不限速
+    private static Result run(ByteBuf batch, boolean recycle, long readIntervalNanos) {
+        int[] received = new int[1];
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(null, recycle), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                received[0]++;
+                if (msg instanceof RecyclableFrame frame) {
+                    frame.recycle();
+                }
+            }
+        });
+
+        long gcCount = Benchmarks.gcCount();
+        long gcMillis = Benchmarks.gcMillis();
+        long allocated = Benchmarks.allocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < READS; i++) {
+            long due = start + i * readIntervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            channel.writeInbound(batch.retainedDuplicate());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        allocated = Benchmarks.allocatedBytes() - allocated;
+        Result result = new Result(received[0], allocated, elapsed,
+                Benchmarks.gcCount() - gcCount, Benchmarks.gcMillis() - gcMillis);
+        channel.finishAndReleaseAll();
+
+        assertEquals(READS * FRAMES_PER_READ, received[0]);
+        return result;
+    }
+
+    private static void report(String name, Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        log.info("{}：{} 帧 / {} 秒，每帧分配 {} 字节，分配速率 {} MB/s，GC {} 次 / {} ms",
+                name, result.frames, String.format("%.1f", seconds),
+                String.format("%.1f", (double) result.allocatedBytes / result.frames),
+                String.format("%.2f", result.allocatedBytes / seconds / (1024 * 1024)),
+                result.gcCount, result.gcMillis);
+    }
+
+    private record Result(int frames, long allocatedBytes, long elapsedNanos, long gcCount, long gcMillis) {
+    }
+}
@@ -0,0 +1,89 @@
+package cn.treedeep.link.run;
+
+import cn.treedeep.link.device.client.codec.DeviceFrameEncoder;
+import cn.treedeep.link.device.protocol.codec.FrameDecoder;
+import cn.treedeep.link.device.protocol.model.report.ReportHeartbeatPacket;
+import cn.treedeep.link.protocol.v1.RecyclableFrame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 心跳帧解码的对象回收：开启 link.frameRecycling 后，帧对象的数量只与单次读取的帧数有关，与总帧数无关
+ */
+class FrameRecyclingTests {
+
+    static final int FRAMES_PER_READ = 64;
+    private static final int READS = 50;
+
+    @Test
+    void recycledFramesAreReused() {
+        Set<Object> instances = decode(true);
+        assertTrue(instances.size() <= FRAMES_PER_READ,
+                "开启回收后创建了 " + instances.size() + " 个帧对象，单次读取只有 " + FRAMES_PER_READ + " 帧");
+    }
+
+    @Test
+    void plainFramesAreNotReused() {
+        assertEquals(FRAMES_PER_READ * READS, decode(false).size());
+    }
+
+    // 解码若干批心跳帧，逐帧校验内容后按需归还，返回出现过的不同帧对象
+    private static Set<Object> decode(boolean recycle) {
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        int[] received = new int[1];
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(null, recycle), new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ReportHeartbeatPacket heartbeat = assertInstanceOf(ReportHeartbeatPacket.class, msg);
+                assertEquals(received[0] % FRAMES_PER_READ, heartbeat.getDeviceId());
+                assertEquals(80, heartbeat.getBattery());
+                instances.add(heartbeat);
+                received[0]++;
+                if (msg instanceof RecyclableFrame frame) {
+                    frame.recycle();
+                }
+            }
+        });
+
+        ByteBuf batch = heartbeatBatch();
+        try {
+            for (int i = 0; i < READS; i++) {
+                channel.writeInbound(batch.retainedDuplicate());
+            }
+        } finally {
+            batch.release();
+            channel.finishAndReleaseAll();
+        }
+
+        assertEquals(FRAMES_PER_READ * READS, received[0]);
+        return instances;
+    }
+
+    // 一次读取的心跳帧：设备ID依次为0到FRAMES_PER_READ-1，电量80
+    static ByteBuf heartbeatBatch() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new DeviceFrameEncoder());
+        ByteBuf batch = Unpooled.directBuffer();
+        for (int i = 0; i < FRAMES_PER_READ; i++) {
+            ReportHeartbeatPacket heartbeat = new ReportHeartbeatPacket((byte) 80, (byte) 1);
+            heartbeat.setDeviceId(i);
+            encoder.writeOutbound(heartbeat);
+            ByteBuf encoded = encoder.readOutbound();
+            batch.writeBytes(encoded);
+            encoded.release();
+        }
+        encoder.finishAndReleaseAll();
+        return batch;
+    }
+}